@@ -0,0 +1,151 @@
+package com.energyxxer.inject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.energyxxer.inject.structure.Command;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Merges two adjacent {@link Command}s of a chain into one, so that fewer command blocks are
+ * needed. Coalescers are registered with {@link InjectionBuffer#addCoalescer(CommandCoalescer)}
+ * and applied to the impulse and repeat {@link Command}s of each structure. {@link Command}s run
+ * by command block minecarts are never coalesced.
+ * <p>
+ * Only unnamed {@link Command}s that don't track their output are passed to coalescers, because
+ * success listeners rely on the names. Furthermore neither {@link Command} is conditional and the
+ * {@link Command} after the second one isn't either, so merging never changes which command a
+ * conditional command depends on.
+ *
+ * @author Adrodoc55
+ */
+@FunctionalInterface
+public interface CommandCoalescer {
+  /**
+   * Merges two adjacent {@link Command}s.
+   *
+   * @param first the earlier {@link Command}
+   * @param second the {@link Command} executed right after {@code first}
+   * @return the {@link Command} replacing both or {@code null} if they can't be merged
+   */
+  @Nullable
+  Command coalesce(Command first, Command second);
+
+  /**
+   * Drops the second of two equal {@link Command}s that have no further effect when executed
+   * again, such as {@code setblock}, {@code fill} or {@code gamerule}.
+   * <p>
+   * Two command blocks of a chain are at different positions, so equal {@link Command}s are only
+   * merged if they don't depend on the position of the command block: they may neither contain
+   * relative ({@code ~}) or local ({@code ^}) coordinates nor a selector that depends on the
+   * position or is random. Such selectors are {@code @p}, {@code @r} and {@code @s} as well as
+   * {@code @a} and {@code @e} with a positional, sorting or limiting argument.
+   */
+  CommandCoalescer IDEMPOTENT_DUPLICATES = new CommandCoalescer() {
+    private final ImmutableList<String> idempotentPrefixes = ImmutableList.of("setblock ",
+        "fill ", "gamerule ", "scoreboard players set ", "time set ", "weather ", "difficulty ",
+        "defaultgamemode ", "worldborder set ");
+    private final ImmutableSet<String> positionalArguments = ImmutableSet.of("x", "y", "z", "dx",
+        "dy", "dz", "distance", "r", "rm", "c", "limit", "sort");
+
+    @Override
+    public @Nullable Command coalesce(Command first, Command second) {
+      String command = first.getCommand();
+      if (!command.equals(second.getCommand())) {
+        return null;
+      }
+      command = command.startsWith("/") ? command.substring(1) : command;
+      for (String prefix : idempotentPrefixes) {
+        if (command.startsWith(prefix)) {
+          return isPositionIndependent(command) ? first : null;
+        }
+      }
+      return null;
+    }
+
+    private boolean isPositionIndependent(String command) {
+      if (command.indexOf('~') >= 0 || command.indexOf('^') >= 0) {
+        return false;
+      }
+      for (int i = command.indexOf('@'); i >= 0; i = command.indexOf('@', i + 1)) {
+        if (i + 1 == command.length()) {
+          break;
+        }
+        char type = command.charAt(i + 1);
+        if (type == 'p' || type == 'r' || type == 's') {
+          return false;
+        }
+        int start = i + 2;
+        if (start < command.length() && command.charAt(start) == '[') {
+          int end = command.indexOf(']', start);
+          String arguments = command.substring(start + 1, end < 0 ? command.length() : end);
+          for (String argument : arguments.split(",")) {
+            int equals = argument.indexOf('=');
+            String key = (equals < 0 ? argument : argument.substring(0, equals)).trim();
+            if (positionalArguments.contains(key)) {
+              return false;
+            }
+          }
+        }
+      }
+      return true;
+    }
+  };
+
+  /**
+   * Keeps only the second of two {@code gamerule} {@link Command}s setting the same rule, such as
+   * a {@code gamerule logAdminCommands false} directly followed by
+   * {@code gamerule logAdminCommands true}.
+   */
+  CommandCoalescer GAMERULE_OVERRIDES = (first, second) -> {
+    String[] a = first.getCommand().split(" ");
+    String[] b = second.getCommand().split(" ");
+    if (a.length == 3 && b.length == 3 && a[0].equals("gamerule") && b[0].equals("gamerule")
+        && a[1].equals(b[1])) {
+      return second;
+    }
+    return null;
+  };
+
+  /**
+   * Applies the specified {@link CommandCoalescer}s to a chain of {@link Command}s in a single
+   * pass. Whenever a {@link Command} can be merged with the preceding (possibly already merged)
+   * one, the first coalescer that succeeds determines the result.
+   *
+   * @param commands the chain
+   * @param coalescers the {@link CommandCoalescer}s to apply
+   * @return a new list containing the coalesced chain
+   */
+  static List<Command> coalesce(List<? extends Command> commands,
+      Collection<? extends CommandCoalescer> coalescers) {
+    List<Command> result = new ArrayList<>(commands.size());
+    for (int i = 0; i < commands.size(); i++) {
+      Command next = commands.get(i);
+      int last = result.size() - 1;
+      if (last >= 0 && isCoalescable(result.get(last)) && isCoalescable(next)
+          && (i + 1 == commands.size() || !commands.get(i + 1).isConditional())) {
+        Command merged = null;
+        for (CommandCoalescer coalescer : coalescers) {
+          merged = coalescer.coalesce(result.get(last), next);
+          if (merged != null) {
+            break;
+          }
+        }
+        if (merged != null) {
+          result.set(last, merged);
+          continue;
+        }
+      }
+      result.add(next);
+    }
+    return result;
+  }
+
+  static boolean isCoalescable(Command command) {
+    return command.getName() == null && !command.isTrackOutput() && !command.isConditional();
+  }
+}
@@ -4,18 +4,26 @@ import static com.energyxxer.inject.structure.CommandBlock.Type.CHAIN;
 import static com.energyxxer.inject.structure.CommandBlock.Type.IMPULSE;
 import static com.energyxxer.inject.structure.CommandBlock.Type.REPEAT;
 import static com.energyxxer.inject.structure.StructureBlock.Mode.LOAD;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static de.adrodoc55.common.concurrent.Locks.runLocked;
 import static de.adrodoc55.minecraft.coordinate.Axis3.X;
 import static de.adrodoc55.minecraft.coordinate.Direction3.DOWN;
 import static de.adrodoc55.minecraft.coordinate.Vec3I.max;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.IntFunction;
 
 import javax.annotation.Nullable;
@@ -30,13 +38,14 @@ import com.energyxxer.inject.structure.CommandBlock.Type;
 import com.energyxxer.inject.structure.CommandBlockMinecart;
 import com.energyxxer.inject.structure.StructureBlock;
 import com.energyxxer.log.MinecraftLogObserver;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.ImmutableList;
 
 import de.adrodoc55.minecraft.coordinate.Vec3D;
 import de.adrodoc55.minecraft.coordinate.Vec3I;
 import de.adrodoc55.minecraft.placement.CommandBlockFactory;
 import de.adrodoc55.minecraft.placement.CommandBlockPlacer;
 import de.adrodoc55.minecraft.placement.NotEnoughSpaceException;
+import de.adrodoc55.minecraft.placement.Placement;
 import de.adrodoc55.minecraft.structure.SimpleBlock;
 import de.adrodoc55.minecraft.structure.SimpleBlockState;
 import de.adrodoc55.minecraft.structure.Structure;
@@ -65,69 +74,40 @@ public class InjectionBuffer {
   private Vec3I repeatSize = new Vec3I(2, 5, 5);
 
   /**
-   * The {@link Command}s that should be injected as {@link CommandBlockMinecart}s.
+   * The {@link Epoch} that new {@link Command}s are added to.
    */
-  private final Collection<Command> minecartCommands = new ConcurrentLinkedQueue<>();
+  private final AtomicReference<Epoch> current = new AtomicReference<>(new Epoch());
   /**
-   * The {@link Command}s that should be injected as {@link Type#IMPULSE} {@link CommandBlock}s.
+   * The previous {@link Epoch}s that still contain {@link Command}s, because they exceeded the
+   * {@link #shares} of their lanes, oldest first. Guarded by {@code this}.
    */
-  private final Collection<Command> impulseCommands = new ConcurrentLinkedQueue<>();
+  private final Deque<Epoch> pending = new ArrayDeque<>();
   /**
-   * The {@link Command}s that should be injected as {@link Type#REPEAT} {@link CommandBlock}s.
+   * The {@link RepeatRegistration}s whose {@link Command}s are added to every {@link Structure}, in
+   * the order they were registered.
    */
-  private final Collection<Command> repeatCommands = new ConcurrentLinkedQueue<>();
-
+  private final List<RepeatRegistration> registrations = new CopyOnWriteArrayList<>();
   /**
-   * This flag indicates whether or not the next call to {@link #createStructure(int)} should
-   * generate {@link #minecartCommands} that if successful are written to the
-   * {@link MinecraftLogObserver#logFile log file}. This is usually set to {@code true} when
-   * listening for the output of some commands.
-   * <p>
-   * <b>Implementation Notes</b><br>
-   * This field is not {@code volatile} because it is only read while holding the exclusive write
-   * lock and only written when holding the read lock of {@link #logAdminCommandsLock}.
+   * Whether or not {@link #registrations} changed since the last {@link Structure}, in which case a
+   * new {@link Structure} is required even if no other {@link Command}s are buffered.
    */
-  private boolean logMinecartCommands;
+  private volatile boolean registrationsChanged;
   /**
-   * This flag indicates whether or not the next call to {@link #createStructure(int)} should
-   * generate {@link #impulseCommands} that if successful are written to the
-   * {@link MinecraftLogObserver#logFile log file}. This is usually set to {@code true} when
-   * listening for the output of some commands.
-   * <p>
-   * <b>Implementation Notes</b><br>
-   * This field is not {@code volatile} because it is only read while holding the exclusive write
-   * lock and only written when holding the read lock of {@link #logAdminCommandsLock}.
+   * The repeat section of the previous {@link Structure}. Only accessed by
+   * {@link #createStructure(int)} on the flushing thread, parallel placement receives it as an
+   * argument.
    */
-  private boolean logImpulseCommands;
+  private @Nullable Section repeatCache;
   /**
-   * This flag indicates whether or not the next call to {@link #createStructure(int)} should
-   * generate {@link #repeatCommands} that if successful are written to the
-   * {@link MinecraftLogObserver#logFile log file}. This is usually set to {@code true} when
-   * listening for the output of some commands.
-   * <p>
-   * <b>Implementation Notes</b><br>
-   * This field is not {@code volatile} because it is only read while holding the exclusive write
-   * lock and only written when holding the read lock of {@link #logAdminCommandsLock}.
+   * The maximal number of {@link Command}s of each {@link Priority} and {@link InjectionType} that
+   * are added to a single {@link Structure}. Guarded by {@code this}.
    */
-  private boolean logRepeatCommands;
+  private final Map<Priority, Integer> shares = new EnumMap<>(Priority.class);
   /**
-   * This {@link ReadWriteLock} is used to prevent concurrent adding of commands that require admin
-   * command logging while {@link #createStructure(int) creating a structure}.<br>
-   * Adding such commands is considered to be the read operation, because multiple commands may be
-   * added concurrently.<br>
-   * Creating a {@link Structure} is considered to be the write operation, because while creating
-   * you may not add such a command or you might end up with one of the following scenarios:
-   * <ul>
-   * <li>If such a command is first added during {@link #createStructure(int)} then it might be
-   * added to the {@link Structure} even though the preparation to enable logging was not
-   * added.</li>
-   * <li>If such a command is added during {@link #createStructure(int)} then the flags
-   * {@link #logMinecartCommands}, {@link #logImpulseCommands} or {@link #logRepeatCommands} might
-   * be set to {@code false} by {@link #createStructure(int)} even though the command might not have
-   * been added to a {@link Structure} yet.</li>
-   * </ul>
+   * The {@link CommandCoalescer}s applied to the {@link Command}s of each structure, in order of
+   * precedence. Empty by default, so that every {@link Command} is injected as is.
    */
-  private final ReadWriteLock logAdminCommandsLock = new ReentrantReadWriteLock();
+  private final List<CommandCoalescer> coalescers = new CopyOnWriteArrayList<>();
 
   /**
    * The minimal size of the next structure needed to clear all blocks of the previous structure.
@@ -136,6 +116,9 @@ public class InjectionBuffer {
 
   public InjectionBuffer(IntFunction<String> getStructureName) {
     this.getStructureName = checkNotNull(getStructureName, "getStructureName == null!");
+    for (Priority priority : Priority.values()) {
+      shares.put(priority, priority.defaultShare);
+    }
   }
 
   private String getStructureName(int structureId) {
@@ -170,77 +153,326 @@ public class InjectionBuffer {
     this.repeatSize = checkNotNull(repeatSize, "repeatSize == null!");
   }
 
+  /**
+   * @param priority the {@link Priority}
+   * @return the maximal number of {@link Command}s of the specified {@link Priority} per
+   *         {@link InjectionType} and {@link Structure}
+   */
+  public synchronized int getShare(Priority priority) {
+    return shares.get(checkNotNull(priority, "priority == null!"));
+  }
+
+  /**
+   * Sets the maximal number of {@link Command}s of the specified {@link Priority} per
+   * {@link InjectionType} that are added to a single {@link Structure}. Any further
+   * {@link Command}s remain buffered for the following {@link Structure}s.
+   *
+   * @param priority the {@link Priority}
+   * @param share the new share, {@link Integer#MAX_VALUE} for no limit
+   * @throws IllegalArgumentException if {@code share} is not positive
+   */
+  public synchronized void setShare(Priority priority, int share)
+      throws IllegalArgumentException {
+    checkNotNull(priority, "priority == null!");
+    checkArgument(share > 0, "share must be positive!");
+    shares.put(priority, share);
+  }
+
+  /**
+   * The lanes of an {@link InjectionType}. When creating a {@link Structure} the {@link Command}s
+   * of higher priority lanes are executed first and each lane contributes at most its
+   * {@link InjectionBuffer#getShare(Priority) share}. This keeps the latency of
+   * {@link #INTERACTIVE} {@link Command}s low even while large amounts of {@link #BULK}
+   * {@link Command}s are buffered.
+   *
+   * @author Adrodoc55
+   */
+  public enum Priority {
+    /**
+     * Latency sensitive {@link Command}s, such as chat messages or teleports in response to a
+     * player action.
+     */
+    INTERACTIVE(Integer.MAX_VALUE), //
+    /**
+     * The default {@link Priority}.
+     */
+    NORMAL(Integer.MAX_VALUE), //
+    /**
+     * Large batches of {@link Command}s, such as world edits, that are drained in the background.
+     */
+    BULK(64), //
+    ;
+    private final int defaultShare;
+
+    private Priority(int defaultShare) {
+      this.defaultShare = defaultShare;
+    }
+  }
+
   /**
    * @author Adrodoc55
    */
   public enum InjectionType {
-    MINECART {
-      @Override
-      protected Collection<Command> getCommandCollection(InjectionBuffer buffer) {
-        return buffer.minecartCommands;
-      }
+    MINECART, //
+    IMPULSE, //
+    REPEAT, //
+    ;
+  }
 
-      @Override
-      protected void setLogCommands(InjectionBuffer buffer, boolean logCommands) {
-        buffer.logMinecartCommands = logCommands;
-      }
-    }, //
-    IMPULSE {
-      @Override
-      protected Collection<Command> getCommandCollection(InjectionBuffer buffer) {
-        return buffer.impulseCommands;
+  /**
+   * The {@link Command}s added between two calls to {@link #createStructure(int)}, one lock-free
+   * queue per {@link InjectionType} and {@link Priority}. Producers only ever add to the
+   * {@link #current} {@link Epoch}, which {@link #createStructure(int)} replaces by a new one.
+   * Fetch {@link Command}s and the flag to log them are always added to the same {@link Epoch}, so
+   * the {@link Structure} can never contain such a {@link Command} without enabling logging.
+   *
+   * @author Adrodoc55
+   */
+  private static final class Epoch {
+    private final List<Queue<Command>> lanes;
+    /**
+     * Whether or not the {@link Command}s of each {@link InjectionType} should be written to the
+     * {@link MinecraftLogObserver#logFile log file}. This is usually set to {@code true} when
+     * listening for the output of some commands.
+     * <p>
+     * <b>Implementation Notes</b><br>
+     * The elements are not {@code volatile}, because producers set them before leaving
+     * {@link #writers} and they are only read once no {@link #writers} remain.
+     */
+    private final boolean[] logCommands = new boolean[InjectionType.values().length];
+    /**
+     * The number of producers that may currently be adding {@link Command}s.
+     */
+    private final AtomicInteger writers = new AtomicInteger();
+
+    Epoch() {
+      int count = InjectionType.values().length * Priority.values().length;
+      lanes = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        lanes.add(new ConcurrentLinkedQueue<>());
       }
+    }
 
-      @Override
-      protected void setLogCommands(InjectionBuffer buffer, boolean logCommands) {
-        buffer.logImpulseCommands = logCommands;
-      }
-    }, //
-    REPEAT {
-      @Override
-      protected Collection<Command> getCommandCollection(InjectionBuffer buffer) {
-        return buffer.repeatCommands;
-      }
+    Queue<Command> getLane(InjectionType type, Priority priority) {
+      return lanes.get(type.ordinal() * Priority.values().length + priority.ordinal());
+    }
 
-      @Override
-      protected void setLogCommands(InjectionBuffer buffer, boolean logCommands) {
-        buffer.logRepeatCommands = logCommands;
+    boolean isEmpty(InjectionType type) {
+      for (Priority priority : Priority.values()) {
+        if (!getLane(type, priority).isEmpty()) {
+          return false;
+        }
       }
-    }, //
-    ;
-    protected abstract Collection<Command> getCommandCollection(InjectionBuffer buffer);
+      return true;
+    }
 
-    protected abstract void setLogCommands(InjectionBuffer buffer, boolean logCommands);
+    boolean isEmpty() {
+      for (Queue<Command> lane : lanes) {
+        if (!lane.isEmpty()) {
+          return false;
+        }
+      }
+      return true;
+    }
   }
 
   public void addCommand(InjectionType type, Command command) {
-    checkNotNull(type, "type == null!");
-    Collection<Command> commandCollection = type.getCommandCollection(this);
-    commandCollection.add(command);
+    addCommand(type, Priority.NORMAL, command);
+  }
+
+  public void addCommand(InjectionType type, Priority priority, Command command) {
+    add(type, priority, ImmutableList.of(command), false);
   }
 
   public void addCommands(InjectionType type, Collection<? extends Command> commands) {
-    checkNotNull(type, "type == null!");
-    Collection<Command> commandCollection = type.getCommandCollection(this);
-    commandCollection.addAll(commands);
+    addCommands(type, Priority.NORMAL, commands);
+  }
+
+  public void addCommands(InjectionType type, Priority priority,
+      Collection<? extends Command> commands) {
+    add(type, priority, commands, false);
   }
 
   public void addFetchCommand(InjectionType type, Command command) {
-    runLocked(logAdminCommandsLock.readLock(), () -> {
-      addCommand(type, command);
-      type.setLogCommands(this, true);
-    });
+    addFetchCommand(type, Priority.NORMAL, command);
+  }
+
+  public void addFetchCommand(InjectionType type, Priority priority, Command command) {
+    add(type, priority, ImmutableList.of(command), true);
   }
 
   public void addFetchCommands(InjectionType type, Collection<? extends Command> commands) {
-    runLocked(logAdminCommandsLock.readLock(), () -> {
-      addCommands(type, commands);
-      type.setLogCommands(this, true);
+    addFetchCommands(type, Priority.NORMAL, commands);
+  }
+
+  public void addFetchCommands(InjectionType type, Priority priority,
+      Collection<? extends Command> commands) {
+    add(type, priority, commands, true);
+  }
+
+  /**
+   * Adds the {@link Command}s to the {@link #current} {@link Epoch}. If the {@link Epoch} is
+   * replaced concurrently the {@link Command}s are added to the new one instead, so that
+   * {@link #createStructure(int)} never misses them.
+   */
+  private void add(InjectionType type, Priority priority, Collection<? extends Command> commands,
+      boolean fetch) {
+    checkNotNull(type, "type == null!");
+    checkNotNull(priority, "priority == null!");
+    while (true) {
+      Epoch epoch = current.get();
+      epoch.writers.incrementAndGet();
+      try {
+        // Once registered as writer, createStructure waits for us unless it already moved on
+        if (epoch == current.get()) {
+          epoch.getLane(type, priority).addAll(commands);
+          if (fetch) {
+            epoch.logCommands[type.ordinal()] = true;
+          }
+          return;
+        }
+      } finally {
+        epoch.writers.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Adds a {@link CommandCoalescer} that is applied to the impulse and repeat {@link Command}s of
+   * every subsequently created {@link Structure}.
+   *
+   * @param coalescer the {@link CommandCoalescer} to add
+   */
+  public void addCoalescer(CommandCoalescer coalescer) {
+    coalescers.add(checkNotNull(coalescer, "coalescer == null!"));
+  }
+
+  /**
+   * Removes a {@link CommandCoalescer} previously added via {@link #addCoalescer}.
+   *
+   * @param coalescer the {@link CommandCoalescer} to remove
+   * @return whether or not the {@link CommandCoalescer} was registered
+   */
+  public boolean removeCoalescer(CommandCoalescer coalescer) {
+    return coalescers.remove(coalescer);
+  }
+
+  private List<Command> coalesce(List<Command> commands) {
+    if (coalescers.isEmpty()) {
+      return commands;
+    }
+    List<Command> result = CommandCoalescer.coalesce(commands, coalescers);
+    if (result.size() < commands.size()) {
+      LOGGER.debug("Coalesced {} commands into {}", commands.size(), result.size());
+    }
+    return result;
+  }
+
+  /**
+   * Registers repeat {@link Command}s that are added to every subsequently created
+   * {@link Structure} until the returned {@link RepeatRegistration} is
+   * {@link RepeatRegistration#cancel() cancelled}. Registered {@link Command}s are executed before
+   * the {@link Command}s that were added as {@link InjectionType#REPEAT}.
+   *
+   * @param commands the {@link Command}s
+   * @return the {@link RepeatRegistration}
+   */
+  public RepeatRegistration register(Collection<? extends Command> commands) {
+    return register(commands, false, () -> {
     });
   }
 
+  /**
+   * Like {@link #register(Collection)}, but the output of the {@link Command}s is written to the
+   * {@link MinecraftLogObserver#logFile log file}.
+   *
+   * @param commands the {@link Command}s
+   * @return the {@link RepeatRegistration}
+   */
+  public RepeatRegistration registerFetch(Collection<? extends Command> commands) {
+    return register(commands, true, () -> {
+    });
+  }
+
+  RepeatRegistration register(Collection<? extends Command> commands, boolean fetch,
+      Runnable onCancel) {
+    RepeatRegistration registration = new RepeatRegistration(this, commands, fetch, onCancel);
+    registrations.add(registration);
+    registrationsChanged = true;
+    return registration;
+  }
+
+  void cancel(RepeatRegistration registration) {
+    if (registrations.remove(registration)) {
+      registrationsChanged = true;
+    }
+  }
+
   private boolean isEmpty() {
-    return minecartCommands.isEmpty() && impulseCommands.isEmpty() && repeatCommands.isEmpty();
+    return current.get().isEmpty() && pending.isEmpty() && !registrationsChanged;
+  }
+
+  /**
+   * Replaces the {@link #current} {@link Epoch} and appends it to the {@link #pending}
+   * {@link Epoch}s once all producers are done adding to it.
+   */
+  private void swapEpoch() {
+    Epoch epoch = current.getAndSet(new Epoch());
+    while (epoch.writers.get() != 0) {
+      // A producer is between registering and adding, which takes no more than a few instructions
+      Thread.yield();
+    }
+    if (!epoch.isEmpty()) {
+      pending.add(epoch);
+    }
+  }
+
+  /**
+   * Removes the {@link Command}s of the specified {@link InjectionType} for the next
+   * {@link Structure} from the {@link #pending} {@link Epoch}s, highest {@link Priority} first and
+   * at most the {@link #shares share} of each lane. A lane is never cut off before a conditional
+   * {@link Command}, because it would then depend on a different {@link Command}.
+   */
+  private List<Command> drain(InjectionType type) {
+    return drain(type, ImmutableList.of(), false);
+  }
+
+  /**
+   * Like {@link #drain(InjectionType)}, but the result starts with the {@code persistent}
+   * {@link Command}s, which also require logging if {@code logPersistent} is {@code true}.
+   */
+  private List<Command> drain(InjectionType type, Collection<Command> persistent,
+      boolean logPersistent) {
+    List<Command> result = new ArrayList<>(persistent);
+    boolean logCommands = logPersistent;
+    for (Epoch epoch : pending) {
+      logCommands |= epoch.logCommands[type.ordinal()];
+    }
+    for (Priority priority : Priority.values()) {
+      int share = shares.get(priority);
+      int taken = 0;
+      for (Epoch epoch : pending) {
+        Queue<Command> lane = epoch.getLane(type, priority);
+        for (Command next; (next = lane.peek()) != null
+            && (taken < share || next.isConditional()); taken++) {
+          result.add(lane.poll());
+        }
+        if (!lane.isEmpty()) {
+          break;
+        }
+      }
+    }
+    for (Epoch epoch : pending) {
+      // Fetch commands left in an epoch still need logging in the next structure
+      if (epoch.isEmpty(type)) {
+        epoch.logCommands[type.ordinal()] = false;
+      }
+    }
+    if (logCommands) {
+      result.add(0, LOG_ADMIN_COMMANDS);
+      result.add(STOP_LOGGING_ADMIN_COMMANDS);
+    }
+    return result;
   }
 
   /**
@@ -256,43 +488,18 @@ public class InjectionBuffer {
       LOGGER.trace("Skipping creation of structure {} due to empty buffer", structureId);
       return null;
     }
-    // WriteLock to prevent concurrent adding of commands that require admin command logging
-    logAdminCommandsLock.writeLock().lock();
-    List<Command> minecartCommands;
-    List<Command> impulseCommands;
-    List<Command> repeatCommands;
-    try {
-      minecartCommands = new ArrayList<>(this.minecartCommands.size());
-      for (Command command : Iterables.consumingIterable(this.minecartCommands)) {
-        minecartCommands.add(command);
-      }
-      if (logMinecartCommands) {
-        minecartCommands.add(0, new Command("gamerule logAdminCommands true"));
-        minecartCommands.add(new Command("gamerule logAdminCommands false"));
-        this.logMinecartCommands = false;
-      }
-      impulseCommands = new ArrayList<>(this.impulseCommands.size());
-      for (Command command : Iterables.consumingIterable(this.impulseCommands)) {
-        impulseCommands.add(command);
-      }
-      if (logImpulseCommands) {
-        impulseCommands.add(0, new Command("gamerule logAdminCommands true"));
-        impulseCommands.add(new Command("gamerule logAdminCommands false"));
-        this.logImpulseCommands = false;
-      }
-      repeatCommands = new ArrayList<>(this.repeatCommands.size());
-      for (Command command : Iterables.consumingIterable(this.repeatCommands)) {
-        repeatCommands.add(command);
-      }
-      if (logRepeatCommands) {
-        repeatCommands.add(0, new Command("gamerule logAdminCommands true"));
-        repeatCommands.add(new Command("gamerule logAdminCommands false"));
-        this.logRepeatCommands = false;
-      }
-    } finally {
-      // this buffer no longer contains fetch commands, releasing lock
-      logAdminCommandsLock.writeLock().unlock();
+    swapEpoch();
+    List<Command> minecartCommands = drain(InjectionType.MINECART);
+    List<Command> impulseCommands = drain(InjectionType.IMPULSE);
+    registrationsChanged = false;
+    List<Command> persistent = new ArrayList<>();
+    boolean logPersistent = false;
+    for (RepeatRegistration registration : registrations) {
+      persistent.addAll(registration.getCommands());
+      logPersistent |= registration.isFetch();
     }
+    List<Command> repeatCommands = drain(InjectionType.REPEAT, persistent, logPersistent);
+    pending.removeIf(Epoch::isEmpty);
 
     LOGGER.debug("Creating structure");
     LOGGER.debug("minecartCommands {}", minecartCommands);
@@ -320,10 +527,25 @@ public class InjectionBuffer {
     }
 
     Vec3I impulseStart = new Vec3I(2, 0, 0);
-    structure.addBlocks(createCommandBlocks(IMPULSE, impulseStart, impulseSize, impulseCommands));
-
     Vec3I repeatStart = impulseStart.plus(impulseSize.x, X);
-    structure.addBlocks(createCommandBlocks(REPEAT, repeatStart, repeatSize, repeatCommands));
+    Section cache = repeatCache;
+    Collection<CommandBlock> impulseBlocks;
+    Section repeatSection;
+    if (impulseCommands.size() + repeatCommands.size() >= PARALLEL_PLACEMENT_THRESHOLD
+        && !impulseCommands.isEmpty() && !repeatCommands.isEmpty()) {
+      // The sections are independent, so the repeat section is placed on another thread
+      ForkJoinTask<Section> repeatTask = ForkJoinPool.commonPool()
+          .submit(() -> createRepeatSection(cache, repeatStart, repeatCommands));
+      impulseBlocks = createCommandBlocks(IMPULSE, impulseStart, impulseSize, impulseCommands);
+      repeatSection = repeatTask.join();
+    } else {
+      impulseBlocks = createCommandBlocks(IMPULSE, impulseStart, impulseSize, impulseCommands);
+      repeatSection = createRepeatSection(cache, repeatStart, repeatCommands);
+    }
+    repeatCache = repeatSection;
+    // Always added in the same order, regardless of which section was placed first
+    structure.addBlocks(impulseBlocks);
+    structure.addBlocks(repeatSection.blocks);
 
     // Each structure has to be big enough to clear all blocks of the previous structure
     Vec3I calcSize = structure.calcSize();
@@ -335,6 +557,16 @@ public class InjectionBuffer {
     return structure;
   }
 
+  private static final Command LOG_ADMIN_COMMANDS = new Command("gamerule logAdminCommands true");
+  private static final Command STOP_LOGGING_ADMIN_COMMANDS =
+      new Command("gamerule logAdminCommands false");
+
+  /**
+   * The number of impulse and repeat {@link Command}s from which on both sections are placed in
+   * parallel.
+   */
+  private static final int PARALLEL_PLACEMENT_THRESHOLD = 256;
+
   private static final Vec3D MINECART_POS = new Vec3D(0.5, 3.0625, 0.5);
 
   private CommandBlockMinecart newCommandBlockMinecart(int structureId, Command command) {
@@ -343,12 +575,67 @@ public class InjectionBuffer {
     return result;
   }
 
+  /**
+   * Creates the repeat section, reusing the {@link CommandBlock}s of the previous {@link Structure}
+   * if nothing changed. This is the common case while only {@link #registrations} are executed.
+   *
+   * @param cache the repeat section of the previous {@link Structure} or {@code null}
+   * @param start the position of the first repeat {@link CommandBlock}
+   * @param commands the repeat {@link Command}s
+   * @return {@code cache} if it can be reused, otherwise a new {@link Section}
+   */
+  private Section createRepeatSection(@Nullable Section cache, Vec3I start,
+      List<Command> commands) {
+    List<CommandCoalescer> coalescers = ImmutableList.copyOf(this.coalescers);
+    Vec3I size = repeatSize;
+    if (cache != null && cache.matches(start, size, commands, coalescers)) {
+      LOGGER.debug("Reusing {} {} command blocks", cache.blocks.size(), REPEAT);
+      return cache;
+    }
+    Collection<CommandBlock> blocks = createCommandBlocks(REPEAT, start, size, commands);
+    return new Section(start, size, commands, coalescers, blocks);
+  }
+
+  /**
+   * The {@link CommandBlock}s of a section along with everything they were created from.
+   *
+   * @author Adrodoc55
+   */
+  private static final class Section {
+    private final Vec3I start;
+    private final Vec3I size;
+    private final List<Command> commands;
+    private final List<CommandCoalescer> coalescers;
+    private final Collection<CommandBlock> blocks;
+
+    Section(Vec3I start, Vec3I size, List<Command> commands, List<CommandCoalescer> coalescers,
+        Collection<CommandBlock> blocks) {
+      this.start = start;
+      this.size = size;
+      this.commands = commands;
+      this.coalescers = coalescers;
+      this.blocks = blocks;
+    }
+
+    boolean matches(Vec3I start, Vec3I size, List<Command> commands,
+        List<CommandCoalescer> coalescers) {
+      // Commands are compared by identity, registrations always supply the same instances
+      return this.start.equals(start) && this.size.equals(size)
+          && this.coalescers.equals(coalescers) && this.commands.equals(commands);
+    }
+  }
+
   private Collection<CommandBlock> createCommandBlocks(Type type, Vec3I start, Vec3I size,
       List<Command> commands) {
     Vec3I max = start.plus(size);
     CommandBlockFactory<Command, CommandBlock> factory = newCommandBlockFactory(type);
     try {
-      return CommandBlockPlacer.place(commands, start, max, factory);
+      Placement<CommandBlock> placement =
+          CommandBlockPlacer.placeOptimized(coalesce(commands), start, max, factory);
+      LOGGER.debug("Placed {} {} commands with {} NOPs, utilizing {}% of {} slots",
+          placement.getCommandCount(), type, placement.getNoOperationCount(),
+          Math.round(placement.getUtilization() * 100), placement.getCapacity());
+      return placement.getCommandBlocks();
     } catch (NotEnoughSpaceException ex) {
       throw new BufferOverflowException(ex);
     }
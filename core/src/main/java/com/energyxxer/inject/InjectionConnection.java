@@ -17,7 +17,9 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.OverlappingFileLockException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -31,6 +33,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.zip.Deflater;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
@@ -40,11 +43,13 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.util.Integers;
 
 import com.energyxxer.inject.InjectionBuffer.InjectionType;
+import com.energyxxer.inject.InjectionBuffer.Priority;
 import com.energyxxer.inject.structure.Command;
 import com.energyxxer.log.MinecraftLogObserver;
 import com.energyxxer.log.SuccessEvent;
 import com.energyxxer.log.SuccessListener;
 import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
 
 import de.adrodoc55.common.util.CheckedConsumer;
@@ -84,6 +89,11 @@ public class InjectionConnection implements AutoCloseable {
    * See {@link #isTimedOut()}.
    */
   private static final int CONNECTION_TIME_OUT = TIME_OUT_DELAY * TIME_OUT_CHECK_FREQUENCY;
+  /**
+   * The deflate level of the {@link Structure} files created by {@link #flush()}. These files are
+   * deleted shortly after being loaded, so they are compressed as fast as possible.
+   */
+  private static final int STRUCTURE_COMPRESSION_LEVEL = Deflater.BEST_SPEED;
 
   private final Logger logger;
   private final MinecraftLogObserver logObserver;
@@ -541,7 +551,7 @@ public class InjectionConnection implements AutoCloseable {
     if (structure == null) {
       return;
     }
-    structure.writeTo(getStructureFile(structureId).toFile());
+    structure.writeTo(getStructureFile(structureId).toFile(), STRUCTURE_COMPRESSION_LEVEL);
     // Don't increment if no structure was written
     this.structureId.incrementAndGet();
     saveStructureId(structureId);
@@ -671,6 +681,45 @@ public class InjectionConnection implements AutoCloseable {
     injectionBuffer.setRepeatSize(repeatSize);
   }
 
+  /**
+   * Delegates to {@link InjectionBuffer#getShare(Priority)}.
+   *
+   * @param priority the {@link Priority}
+   * @return the share of the {@link Priority}
+   */
+  public int getShare(Priority priority) {
+    return injectionBuffer.getShare(priority);
+  }
+
+  /**
+   * Delegates to {@link InjectionBuffer#setShare(Priority, int)}.
+   *
+   * @param priority the {@link Priority}
+   * @param share the new share
+   */
+  public void setShare(Priority priority, int share) {
+    injectionBuffer.setShare(priority, share);
+  }
+
+  /**
+   * Delegates to {@link InjectionBuffer#addCoalescer(CommandCoalescer)}.
+   *
+   * @param coalescer the {@link CommandCoalescer} to add
+   */
+  public void addCoalescer(CommandCoalescer coalescer) {
+    injectionBuffer.addCoalescer(coalescer);
+  }
+
+  /**
+   * Delegates to {@link InjectionBuffer#removeCoalescer(CommandCoalescer)}.
+   *
+   * @param coalescer the {@link CommandCoalescer} to remove
+   * @return whether or not the {@link CommandCoalescer} was registered
+   */
+  public boolean removeCoalescer(CommandCoalescer coalescer) {
+    return injectionBuffer.removeCoalescer(coalescer);
+  }
+
   /**
    * Inject the specified {@code command} according to the specified {@link InjectionType}.
    *
@@ -690,8 +739,22 @@ public class InjectionConnection implements AutoCloseable {
    * @throws IllegalStateException if {@code this} connection is not {@link #isOpen() open}
    */
   public void inject(InjectionType type, Command command) throws IllegalStateException {
+    inject(type, Priority.NORMAL, command);
+  }
+
+  /**
+   * Inject the specified {@link Command} according to the specified {@link InjectionType} in the
+   * lane of the specified {@link Priority}.
+   *
+   * @param type the {@link InjectionType}
+   * @param priority the {@link Priority}
+   * @param command the {@link Command}
+   * @throws IllegalStateException if {@code this} connection is not {@link #isOpen() open}
+   */
+  public void inject(InjectionType type, Priority priority, Command command)
+      throws IllegalStateException {
     checkOpen();
-    injectionBuffer.addCommand(type, command);
+    injectionBuffer.addCommand(type, priority, command);
   }
 
   /**
@@ -720,8 +783,24 @@ public class InjectionConnection implements AutoCloseable {
    */
   public void inject(InjectionType type, Command command, Consumer<SuccessEvent> listener)
       throws IllegalStateException {
+    inject(type, Priority.NORMAL, command, listener);
+  }
+
+  /**
+   * Inject the specified {@link Command} according to the specified {@link InjectionType} in the
+   * lane of the specified {@link Priority} and register the {@link SuccessEvent} listener for
+   * {@link Command#getName()}.
+   *
+   * @param type the {@link InjectionType}
+   * @param priority the {@link Priority}
+   * @param command the {@link Command}
+   * @param listener the {@link SuccessEvent} listener
+   * @throws IllegalStateException if {@code this} connection is not {@link #isOpen() open}
+   */
+  public void inject(InjectionType type, Priority priority, Command command,
+      Consumer<SuccessEvent> listener) throws IllegalStateException {
     checkOpen();
-    injectionBuffer.addFetchCommand(type, command);
+    injectionBuffer.addFetchCommand(type, priority, command);
     String name = command.getName();
     boolean repeat = type == InjectionType.REPEAT;
     addSuccessListener(name, repeat, listener);
@@ -736,11 +815,25 @@ public class InjectionConnection implements AutoCloseable {
    * @throws IllegalStateException if {@code this} connection is not {@link #isOpen() open}
    */
   public void inject(InjectionType type, InjectionGroup group) throws IllegalStateException {
+    inject(type, Priority.NORMAL, group);
+  }
+
+  /**
+   * Inject all {@link Command}s of the specified {@link InjectionGroup} according to the specified
+   * {@link InjectionType} in the lane of the specified {@link Priority} in one atomic action.
+   *
+   * @param type the {@link InjectionType}
+   * @param priority the {@link Priority}
+   * @param group the {@link InjectionGroup}
+   * @throws IllegalStateException if {@code this} connection is not {@link #isOpen() open}
+   */
+  public void inject(InjectionType type, Priority priority, InjectionGroup group)
+      throws IllegalStateException {
     checkOpen();
     if (group.containsFetchCommands()) {
-      injectionBuffer.addFetchCommands(type, group.getCommands());
+      injectionBuffer.addFetchCommands(type, priority, group.getCommands());
     } else {
-      injectionBuffer.addCommands(type, group.getCommands());
+      injectionBuffer.addCommands(type, priority, group.getCommands());
     }
     boolean repeat = type == InjectionType.REPEAT;
     for (Entry<String, Consumer<SuccessEvent>> entry : group.getListeners().entries()) {
@@ -748,6 +841,63 @@ public class InjectionConnection implements AutoCloseable {
     }
   }
 
+  /**
+   * Register the specified {@link Command} to be executed every tick until the returned
+   * {@link RepeatRegistration} is {@link RepeatRegistration#cancel() cancelled}. Unlike
+   * {@link InjectionType#REPEAT} {@link Command}s it does not have to be injected again for every
+   * {@link #flush()}.
+   *
+   * @param command the {@link Command}
+   * @return the {@link RepeatRegistration}
+   * @throws IllegalStateException if {@code this} connection is not {@link #isOpen() open}
+   */
+  public RepeatRegistration register(Command command) throws IllegalStateException {
+    checkOpen();
+    return injectionBuffer.register(ImmutableList.of(command));
+  }
+
+  /**
+   * Register the specified {@link Command} like {@link #register(Command)} and the
+   * {@link SuccessEvent} listener for {@link Command#getName()} until the returned
+   * {@link RepeatRegistration} is {@link RepeatRegistration#cancel() cancelled}.
+   *
+   * @param command the {@link Command}
+   * @param listener the {@link SuccessEvent} listener
+   * @return the {@link RepeatRegistration}
+   * @throws IllegalStateException if {@code this} connection is not {@link #isOpen() open}
+   */
+  public RepeatRegistration register(Command command, Consumer<SuccessEvent> listener)
+      throws IllegalStateException {
+    InjectionGroup group = new InjectionGroup();
+    group.add(command, listener);
+    return register(group);
+  }
+
+  /**
+   * Register all {@link Command}s and {@link SuccessEvent} listeners of the specified
+   * {@link InjectionGroup} like {@link #register(Command, Consumer)}.
+   *
+   * @param group the {@link InjectionGroup}
+   * @return the {@link RepeatRegistration}
+   * @throws IllegalStateException if {@code this} connection is not {@link #isOpen() open}
+   */
+  public RepeatRegistration register(InjectionGroup group) throws IllegalStateException {
+    checkOpen();
+    List<SuccessListener> listeners = new ArrayList<>();
+    for (Entry<String, Consumer<SuccessEvent>> entry : group.getListeners().entries()) {
+      listeners.add(new SuccessListener(entry.getKey(), true, entry.getValue()));
+    }
+    // Not tracked in successListeners, because these live until the registration is cancelled
+    for (SuccessListener listener : listeners) {
+      logObserver.addSuccessListener(listener);
+    }
+    return injectionBuffer.register(group.getCommands(), group.containsFetchCommands(), () -> {
+      for (SuccessListener listener : listeners) {
+        logObserver.removeSuccessListener(listener);
+      }
+    });
+  }
+
   /**
    * Call the specified {@link Consumer} to populate a new {@link InjectionGroup} and then inject
    * the {@link InjectionGroup} according to the specified {@link InjectionType} in one atomic
@@ -801,6 +951,51 @@ public class InjectionConnection implements AutoCloseable {
     return result;
   }
 
+  /**
+   * Write the specified {@link Structure} to the {@link #structureDir} and inject the commands
+   * required to load it at the specified {@code position} in one atomic {@link InjectionType#IMPULSE
+   * IMPULSE} action.
+   * <p>
+   * This places a structure block in {@code LOAD} mode at {@code position} and powers it with a
+   * redstone block in an adjacent cell. Both blocks lie within the bounds of the {@link Structure}
+   * and are therefore replaced once it is loaded, so the {@link Structure} should have an
+   * {@link Structure#getBackground() background} or cover these cells with its own blocks. Copying
+   * a region this way costs a single structure load instead of one command per block.
+   *
+   * @param name the name of the {@link Structure}, relative to the {@link #structureDir}
+   * @param structure the {@link Structure} to load
+   * @param position the absolute position of the minimal corner of the loaded {@link Structure}
+   * @throws IllegalArgumentException if the {@link Structure#getSize() size} of the
+   *         {@link Structure} is 1x1x1, leaving no room for the redstone block
+   * @throws IllegalStateException if {@code this} connection is not {@link #isOpen() open}
+   * @throws IOException if an I/O error occurs while creating the {@link Structure} file
+   */
+  public void injectStructure(String name, Structure structure, Vec3I position)
+      throws IllegalArgumentException, IllegalStateException, IOException {
+    checkNotNull(name, "name == null!");
+    checkNotNull(structure, "structure == null!");
+    checkNotNull(position, "position == null!");
+    checkOpen();
+    Vec3I size = structure.getSize();
+    Vec3I power;
+    if (size.y > 1) {
+      power = position.plus(Vec3I.UP);
+    } else if (size.x > 1) {
+      power = position.plus(Vec3I.EAST);
+    } else if (size.z > 1) {
+      power = position.plus(Vec3I.SOUTH);
+    } else {
+      throw new IllegalArgumentException("Cannot inject a structure of size " + size);
+    }
+    structure.writeTo(structureDir.resolve(name + ".nbt").toFile());
+    InjectionGroup group = new InjectionGroup();
+    group.add("setblock " + position.toAbsoluteString()
+        + " minecraft:structure_block 0 replace {mode:\"LOAD\",name:\"" + name
+        + "\",posX:0,posY:0,posZ:0,ignoreEntities:1b}");
+    group.add("setblock " + power.toAbsoluteString() + " minecraft:redstone_block");
+    inject(IMPULSE, group);
+  }
+
   @Override
   public String toString() {
     return "connection '" + identifier + "' to Minecraft world '" + worldDir.getFileName() + "'";
@@ -0,0 +1,88 @@
+package com.energyxxer.inject;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.energyxxer.inject.InjectionBuffer.InjectionType;
+import com.energyxxer.inject.structure.Command;
+import com.google.common.collect.ImmutableList;
+
+import de.adrodoc55.minecraft.structure.Structure;
+
+/**
+ * A handle for repeat {@link Command}s that were {@link InjectionBuffer#register(Collection)
+ * registered}. Unlike {@link Command}s injected as {@link InjectionType#REPEAT}, these are part of
+ * every {@link Structure} until they are {@link #cancel() cancelled}.
+ *
+ * @author Adrodoc55
+ */
+@ThreadSafe
+public class RepeatRegistration {
+  private final InjectionBuffer buffer;
+  /**
+   * The {@link Command}s in the order they are executed every tick.
+   */
+  private final ImmutableList<Command> commands;
+  /**
+   * Whether or not the output of the {@link #commands} has to be written to the log file.
+   */
+  private final boolean fetch;
+  /**
+   * Called once when {@code this} registration is {@link #cancel() cancelled}.
+   */
+  private final Runnable onCancel;
+  private final AtomicBoolean cancelled = new AtomicBoolean();
+
+  RepeatRegistration(InjectionBuffer buffer, Collection<? extends Command> commands,
+      boolean fetch, Runnable onCancel) {
+    this.buffer = checkNotNull(buffer, "buffer == null!");
+    this.commands = ImmutableList.copyOf(commands);
+    this.fetch = fetch;
+    this.onCancel = checkNotNull(onCancel, "onCancel == null!");
+  }
+
+  /**
+   * @return the value of {@link #commands}
+   */
+  public List<Command> getCommands() {
+    return commands;
+  }
+
+  /**
+   * @return the value of {@link #fetch}
+   */
+  public boolean isFetch() {
+    return fetch;
+  }
+
+  /**
+   * @return whether or not {@code this} registration was {@link #cancel() cancelled}
+   */
+  public boolean isCancelled() {
+    return cancelled.get();
+  }
+
+  /**
+   * Removes the {@link #commands} from all subsequently created {@link Structure}s.
+   *
+   * @return {@code false} if {@code this} registration was already cancelled
+   */
+  public boolean cancel() {
+    if (!cancelled.compareAndSet(false, true)) {
+      return false;
+    }
+    buffer.cancel(this);
+    onCancel.run();
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "RepeatRegistration [commands=" + commands + ", cancelled=" + cancelled + "]";
+  }
+}
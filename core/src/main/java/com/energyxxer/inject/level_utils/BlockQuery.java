@@ -0,0 +1,362 @@
+package com.energyxxer.inject.level_utils;
+
+import com.energyxxer.inject.level_utils.Chunk.TerrainData.Section;
+import com.energyxxer.inject.level_utils.block.Block;
+import com.energyxxer.inject.level_utils.block.BlockType;
+import de.adrodoc55.minecraft.coordinate.Vec3I;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Scans the blocks of a cuboid in a world, for finding all blocks of a kind or counting the blocks per kind.
+ *
+ * The cuboid is split into chunk sections, which are scanned in parallel on a fork-join pool. The given predicate is
+ * evaluated once per block state rather than once per block, and sections that can't contain a matching block are
+ * skipped without looking at their blocks: sections saved since Minecraft 1.13 if no entry of their palette matches,
+ * and older sections without block IDs above 255 if no such block type matches.
+ *
+ * Unsaved sections and chunks consist of air. Blocks saved since Minecraft 1.13 have no numerical IDs: their air is
+ * matched as ID 0 with data value 0, and all other blocks never match. See
+ * {@link Chunk.TerrainData#getBlockId(int, int, int)}.
+ */
+public class BlockQuery {
+    /**
+     * The number of sections scanned by a single task. One chunk is 16 sections high.
+     * */
+    private static final int SECTIONS_PER_TASK = 16;
+    /**
+     * The number of distinct block states, indexed by <code>id &lt;&lt; 4 | data</code>.
+     * */
+    private static final int STATES = 4096 * 16;
+
+    private final LevelReader reader;
+    private final int dim;
+    private final int minX, minY, minZ;
+    private final int maxX, maxY, maxZ;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * The sections intersecting the cuboid, as triples of chunk x, chunk z and section y index.
+     * Sections of the same chunk are adjacent, so that each task reads as few chunks as possible.
+     * */
+    private final int[] sections;
+
+    /**
+     * Creates a query over the cuboid between the given corners in the specified dimension.
+     * Parts of the cuboid outside the world's height bounds are ignored.
+     *
+     * @param reader The level reader to read chunks with.
+     * @param corner1 One corner of the cuboid (inclusive).
+     * @param corner2 The diagonally opposite corner of the cuboid (inclusive).
+     * @param dim The dimension number (Nether -1, Overworld 0, End 1).
+     * */
+    public BlockQuery(LevelReader reader, Vec3I corner1, Vec3I corner2, int dim) {
+        this.reader = checkNotNull(reader, "reader == null!");
+        this.dim = dim;
+        Vec3I min = Vec3I.min(corner1, corner2);
+        Vec3I max = Vec3I.max(corner1, corner2);
+        this.minX = min.x;
+        this.minY = Math.max(min.y, 0);
+        this.minZ = min.z;
+        this.maxX = max.x;
+        this.maxY = Math.min(max.y, 255);
+        this.maxZ = max.z;
+
+        int sectionsHigh = (minY <= maxY) ? (maxY >> 4) - (minY >> 4) + 1 : 0;
+        long count = (long) ((maxX >> 4) - (minX >> 4) + 1) * ((maxZ >> 4) - (minZ >> 4) + 1) * sectionsHigh;
+        if(count * 3 > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Cuboid is too large: " + min + ", " + max);
+        this.sections = new int[(int) count * 3];
+        int i = 0;
+        for(int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for(int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                for(int s = 0; s < sectionsHigh; s++) {
+                    sections[i++] = chunkX;
+                    sections[i++] = chunkZ;
+                    sections[i++] = (minY >> 4) + s;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the pool the sections are scanned on. Defaults to the common pool.
+     *
+     * @param pool The fork-join pool.
+     *
+     * @return This query.
+     * */
+    public BlockQuery setPool(ForkJoinPool pool) {
+        this.pool = checkNotNull(pool, "pool == null!");
+        return this;
+    }
+
+    /**
+     * Finds all blocks matching the given predicate.
+     *
+     * @param predicate The predicate deciding which blocks are searched for.
+     *
+     * @return The world coordinates of the matching blocks, ordered by chunk, then by y, z and x coordinate.
+     * */
+    public List<Vec3I> find(Predicate<Block> predicate) {
+        boolean[] matches = evaluate(predicate);
+        return pool.invoke(new Scan<>(new Job<List<Vec3I>>() {
+            @Override
+            public List<Vec3I> scan(int from, int to) {
+                List<Vec3I> found = new ArrayList<>();
+                for(int i = from; i < to; i++) {
+                    scanSection(i, matches, (x, y, z) -> found.add(new Vec3I(x, y, z)), null);
+                }
+                return found;
+            }
+
+            @Override
+            public List<Vec3I> combine(List<Vec3I> a, List<Vec3I> b) {
+                a.addAll(b);
+                return a;
+            }
+        }, 0, sections.length / 3));
+    }
+
+    /**
+     * Counts the blocks matching the given predicate.
+     *
+     * @param predicate The predicate deciding which blocks are counted.
+     *
+     * @return The number of matching blocks.
+     * */
+    public long count(Predicate<Block> predicate) {
+        long[] total = new long[STATES];
+        histogram(evaluate(predicate), total);
+        long sum = 0;
+        for(long c : total) sum += c;
+        return sum;
+    }
+
+    /**
+     * Counts the blocks of every block type and data value.
+     *
+     * @return The number of blocks per block, in order of block ID and data value. Only contains blocks that occur.
+     * */
+    public Map<Block, Long> histogram() {
+        return histogram(b -> true);
+    }
+
+    /**
+     * Counts the blocks matching the given predicate per block type and data value.
+     *
+     * @param predicate The predicate deciding which blocks are counted.
+     *
+     * @return The number of matching blocks per block, in order of block ID and data value. Only contains blocks
+     * that occur.
+     * */
+    public Map<Block, Long> histogram(Predicate<Block> predicate) {
+        long[] total = new long[STATES];
+        histogram(evaluate(predicate), total);
+        Map<Block, Long> result = new LinkedHashMap<>();
+        for(int state = 0; state < STATES; state++) {
+            if(total[state] != 0) result.put(Block.get(state >> 4, state & 15), total[state]);
+        }
+        return result;
+    }
+
+    /**
+     * Counts the matching blocks per block state into the given array.
+     *
+     * @param matches The matching block states, as returned by {@link #evaluate(Predicate)}.
+     * @param total The array to add the counts to, indexed by <code>id &lt;&lt; 4 | data</code>.
+     * */
+    private void histogram(boolean[] matches, long[] total) {
+        //Each worker thread counts into its own array, which are summed up once all sections are scanned
+        Map<Thread, long[]> counts = new ConcurrentHashMap<>();
+        pool.invoke(new Scan<>(new Job<Void>() {
+            @Override
+            public Void scan(int from, int to) {
+                long[] c = counts.computeIfAbsent(Thread.currentThread(), t -> new long[STATES]);
+                for(int i = from; i < to; i++) {
+                    scanSection(i, matches, null, c);
+                }
+                return null;
+            }
+
+            @Override
+            public Void combine(Void a, Void b) {
+                return null;
+            }
+        }, 0, sections.length / 3));
+        for(long[] c : counts.values()) {
+            for(int state = 0; state < STATES; state++) {
+                total[state] += c[state];
+            }
+        }
+    }
+
+    /**
+     * Evaluates the given predicate for every block state.
+     *
+     * @param predicate The predicate.
+     *
+     * @return Whether each block state matches, indexed by <code>id &lt;&lt; 4 | data</code>.
+     * */
+    private static boolean[] evaluate(Predicate<Block> predicate) {
+        checkNotNull(predicate, "predicate == null!");
+        boolean[] matches = new boolean[STATES];
+        for(BlockType type : BlockType.values()) {
+            for(int data = 0; data < 16; data++) {
+                matches[type.numericalId << 4 | data] = predicate.test(type.getByData(data));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Scans the part of a section within the cuboid, reporting matching blocks either to a consumer or by adding
+     * them to an array of counts.
+     *
+     * @param unit The index of the section in {@link #sections}.
+     * @param matches The matching block states.
+     * @param found Receives the world coordinates of matching blocks. <code>null</code> if counting.
+     * @param counts The counts of matching blocks, indexed by <code>id &lt;&lt; 4 | data</code>.
+     *               <code>null</code> if finding.
+     * */
+    private void scanSection(int unit, boolean[] matches, BlockConsumer found, long[] counts) {
+        int chunkX = sections[unit * 3];
+        int chunkZ = sections[unit * 3 + 1];
+        int sectionY = sections[unit * 3 + 2];
+        int originX = chunkX << 4, originY = sectionY << 4, originZ = chunkZ << 4;
+        int x0 = Math.max(minX, originX) - originX, x1 = Math.min(maxX, originX + 15) - originX;
+        int y0 = Math.max(minY, originY) - originY, y1 = Math.min(maxY, originY + 15) - originY;
+        int z0 = Math.max(minZ, originZ) - originZ, z1 = Math.min(maxZ, originZ + 15) - originZ;
+
+        Section section = reader.readChunk(chunkX, chunkZ, dim).terrainData.getSectionAt(sectionY);
+
+        if(section == null || (section.palette != null ? section.states == null : section.blocks == null)) {
+            if(!matches[0]) return;
+            if(counts != null) {
+                counts[0] += (long) (x1 - x0 + 1) * (y1 - y0 + 1) * (z1 - z0 + 1);
+                return;
+            }
+            for(int y = y0; y <= y1; y++) {
+                for(int z = z0; z <= z1; z++) {
+                    for(int x = x0; x <= x1; x++) {
+                        found.accept(originX + x, originY + y, originZ + z);
+                    }
+                }
+            }
+            return;
+        }
+
+        if(section.palette != null) {
+            //Match the palette rather than the blocks. Only air has a known ID, everything else is -1
+            int paletteSize = section.palette.length;
+            boolean[] hit = new boolean[paletteSize];
+            boolean any = false;
+            for(int p = 0; p < paletteSize; p++) {
+                int id = section.paletteIds[p];
+                hit[p] = id >= 0 && matches[id << 4];
+                any |= hit[p];
+            }
+            if(!any) return;
+
+            int[] states = section.states;
+            int[] paletteCounts = (counts != null) ? new int[paletteSize] : null;
+            for(int y = y0; y <= y1; y++) {
+                for(int z = z0; z <= z1; z++) {
+                    int row = Section.indexOf(0, y, z);
+                    for(int x = x0; x <= x1; x++) {
+                        int p = states[row + x];
+                        if(p >= paletteSize || !hit[p]) continue;
+                        if(paletteCounts != null) paletteCounts[p]++;
+                        else found.accept(originX + x, originY + y, originZ + z);
+                    }
+                }
+            }
+            if(paletteCounts != null) {
+                for(int p = 0; p < paletteSize; p++) {
+                    if(hit[p]) counts[section.paletteIds[p] << 4] += paletteCounts[p];
+                }
+            }
+            return;
+        }
+
+        //Without an Add array, all IDs are below 256
+        byte[] blocks = section.blocks, add = section.add, data = section.data;
+        if(add == null && !anyBelow(matches, 256)) return;
+
+        for(int y = y0; y <= y1; y++) {
+            for(int z = z0; z <= z1; z++) {
+                int row = Section.indexOf(0, y, z);
+                for(int x = x0; x <= x1; x++) {
+                    int index = row + x;
+                    int id = blocks[index] & 255;
+                    if(add != null) id |= Section.getNibble(add, index) << 8;
+                    int state = id << 4 | ((data != null) ? Section.getNibble(data, index) : 0);
+                    if(!matches[state]) continue;
+                    if(counts != null) counts[state]++;
+                    else found.accept(originX + x, originY + y, originZ + z);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether any block with an ID below the given one matches.
+     * */
+    private static boolean anyBelow(boolean[] matches, int id) {
+        for(int state = 0; state < id << 4; state++) {
+            if(matches[state]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Receives the world coordinates of matching blocks.
+     * */
+    private interface BlockConsumer {
+        void accept(int x, int y, int z);
+    }
+
+    /**
+     * The work done for a range of sections, and how the results of adjacent ranges are combined.
+     * */
+    private interface Job<R> {
+        R scan(int from, int to);
+
+        R combine(R a, R b);
+    }
+
+    /**
+     * A task scanning a range of sections, splitting it into halves until it's small enough.
+     * */
+    private static final class Scan<R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        private final Job<R> job;
+        private final int from;
+        private final int to;
+
+        Scan(Job<R> job, int from, int to) {
+            this.job = job;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected R compute() {
+            if(to - from <= SECTIONS_PER_TASK) return job.scan(from, to);
+            int mid = (from + to) >>> 1;
+            Scan<R> left = new Scan<>(job, from, mid);
+            left.fork();
+            R right = new Scan<>(job, mid, to).compute();
+            return job.combine(left.join(), right);
+        }
+    }
+}
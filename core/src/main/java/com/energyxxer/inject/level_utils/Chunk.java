@@ -1,20 +1,35 @@
 package com.energyxxer.inject.level_utils;
 
 import com.energyxxer.inject.level_utils.block.Block;
+import com.energyxxer.inject.level_utils.block.BlockType;
+import com.energyxxer.inject.level_utils.nbt.NbtReader;
 import com.energyxxer.inject.level_utils.nbt.Tag;
+import com.energyxxer.inject.level_utils.nbt.TagSelector;
+import com.google.common.collect.ImmutableMap;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Class representing a single chunk of a world.
  *
+ * Only the chunk's header is decoded when it's loaded. If the rest of its data turns out to be corrupt, every
+ * query that needs it throws an <code>UncheckedIOException</code> rather than treating the chunk as empty.
+ *
  * @see <a href="http://minecraft.gamepedia.com/Chunk_format">Chunk format in the Minecraft Wiki</a>
  */
 public class Chunk {
     private static final int MIN_HEIGHT = 0;
     private static final int MAX_HEIGHT = 255;
+    /**
+     * The first data version (20w17a) in which the entries of <code>BlockStates</code> don't span across longs.
+     * */
+    private static final int NON_SPANNING_DATA_VERSION = 2529;
     /**
      * X position of the region the chunk is contained in.
      * */
@@ -45,6 +60,10 @@ public class Chunk {
      * This chunk's <code>TerrainData</code> object. Contains information about the blocks contained in the chunk.
      * */
     public final TerrainData terrainData;
+    /**
+     * This chunk's <code>HeightMap</code> object. Contains the height of each of the chunk's columns.
+     * */
+    public final HeightMap heightMap;
 
     /**
      * The cumulative number of ticks players have been in the chunk.
@@ -52,79 +71,83 @@ public class Chunk {
     public final long inhabitedTime;
 
     /**
-     * Each TAG_Compound in this list defines a block entity in the chunk.
+     * Version of the chunk's NBT structure.
      * */
-    public final List<Tag.Compound> tileEntities = new ArrayList<>();
+    public final int dataVersion;
+
     /**
-     * Each TAG_Compound in this list defines an entity in the chunk.
+     * The chunk's uncompressed NBT data. Parts of it are only decoded once they're asked for.
+     * <code>null</code> if the chunk hasn't been saved.
      * */
-    public final List<Tag.Compound> entities = new ArrayList<>();
+    private final byte[] nbt;
 
     /**
-     * Version of the chunk's NBT structure.
+     * Selects the tags read when creating a chunk.
      * */
-    public final int dataVersion;
-
+    private static final TagSelector HEADER = TagSelector.named("DataVersion", TagSelector.ALL)
+            .or(TagSelector.named("Level", TagSelector.children("xPos", "zPos", "LastUpdate", "InhabitedTime")));
     /**
-     * The chunk's entire TAG_Compound. Use to get data not abstracted by the chunk's constructor.
+     * Selects the <code>Sections</code> tag.
      * */
-    public final Tag.Compound raw;
+    private static final TagSelector SECTIONS = TagSelector.named("Level", TagSelector.children("Sections"));
+    /**
+     * Selects the <code>Biomes</code> tag.
+     * */
+    private static final TagSelector BIOMES = TagSelector.named("Level", TagSelector.children("Biomes"));
+    /**
+     * Selects the <code>HeightMap</code> tag.
+     * */
+    private static final TagSelector HEIGHT_MAP = TagSelector.named("Level", TagSelector.children("HeightMap"));
+    /**
+     * Selects the <code>TileEntities</code> tag.
+     * */
+    private static final TagSelector TILE_ENTITIES = TagSelector.named("Level", TagSelector.children("TileEntities"));
+    /**
+     * Selects the <code>Entities</code> tag.
+     * */
+    private static final TagSelector ENTITIES = TagSelector.named("Level", TagSelector.children("Entities"));
 
     /**
-     * Takes a Compound tag, reads some of its most relevant data and saves it in the object.
+     * Takes the uncompressed NBT data of a chunk and reads its header, leaving the rest of the data to be
+     * decoded once needed.
      * Also takes the position of the region this chunk is in for later optimization by the level reader.
      *
-     * @param raw The compound tag representing the chunk.
+     * @param nbt The uncompressed NBT data of the chunk.
      * @param regionX The X position of the region the chunk is in.
      * @param regionZ The Z position of the region the chunk is in.
+     *
+     * @throws IOException if the chunk's header can't be read.
      * */
-    Chunk(Tag.Compound raw, int regionX, int regionZ) {
-        this.raw = raw;
+    Chunk(byte[] nbt, int regionX, int regionZ) throws IOException {
+        this.nbt = nbt;
         this.regionX = regionX;
         this.regionZ = regionZ;
 
-        int xPos = 0;
-        int zPos = 0;
-        long lastUpdate = -1;
-        BiomeMap biomeMap = null;
-        TerrainData terrainData = null;
-        long inhabitedTime = -1;
-        int dataVersion = -1;
-
-        for(Tag t0 : raw) {
-            if(TagUtils.match(t0, "DataVersion", Tag.Int.class)) {
-                dataVersion = ((Tag.Int) t0).v;
-            } else if(TagUtils.match(t0, "Level", Tag.Compound.class)) {
-                //Start abstracting chunk data;
-
-                for(Tag t : (Tag.Compound) t0) {
-                    if(TagUtils.match(t, "xPos", Tag.Int.class)) xPos = ((Tag.Int) t).v;
-                    else if(TagUtils.match(t, "zPos", Tag.Int.class)) zPos = ((Tag.Int) t).v;
-                    else if(TagUtils.match(t, "LastUpdate", Tag.Long.class)) lastUpdate = ((Tag.Long) t).v;
-                    else if(TagUtils.match(t, "Biomes", Tag.ByteArray.class)) biomeMap = new BiomeMap((Tag.ByteArray) t);
-                    else if(TagUtils.match(t, "Sections", Tag.List.class)) terrainData = new TerrainData((Tag.List) t);
-                    else if(TagUtils.match(t, "InhabitedTime", Tag.Long.class)) inhabitedTime = ((Tag.Long) t).v;
-                    else if(TagUtils.match(t, "TileEntities", Tag.List.class)) {
-                        for(Tag te : (Tag.List) t) {
-                            tileEntities.add((Tag.Compound) te);
-                        }
-                    }
-                    else if(TagUtils.match(t, "Entities", Tag.List.class)) {
-                        for(Tag te : (Tag.List) t) {
-                            entities.add((Tag.Compound) te);
-                        }
-                    }
-                }
-            }
-        }
+        Tag.Compound root = (Tag.Compound) new NbtReader(nbt).read(HEADER);
+        Tag.Compound level = TagUtils.get(root, "Level", Tag.Compound.class);
+
+        Tag.Int dataVersion = TagUtils.get(root, "DataVersion", Tag.Int.class);
+        Tag.Int xPos = TagUtils.get(level, "xPos", Tag.Int.class);
+        Tag.Int zPos = TagUtils.get(level, "zPos", Tag.Int.class);
+        Tag.Long lastUpdate = TagUtils.get(level, "LastUpdate", Tag.Long.class);
+        Tag.Long inhabitedTime = TagUtils.get(level, "InhabitedTime", Tag.Long.class);
 
-        this.xPos = xPos;
-        this.zPos = zPos;
-        this.lastUpdate = lastUpdate;
-        this.biomeMap = biomeMap;
-        this.terrainData = terrainData;
-        this.inhabitedTime = inhabitedTime;
-        this.dataVersion = dataVersion;
+        this.dataVersion = (dataVersion != null) ? dataVersion.v : -1;
+        this.xPos = (xPos != null) ? xPos.v : 0;
+        this.zPos = (zPos != null) ? zPos.v : 0;
+        this.lastUpdate = (lastUpdate != null) ? lastUpdate.v : -1;
+        this.inhabitedTime = (inhabitedTime != null) ? inhabitedTime.v : -1;
+
+        this.biomeMap = new BiomeMap(() -> {
+            Tag.ByteArray biomes = TagUtils.get(decodeLevel(BIOMES), "Biomes", Tag.ByteArray.class);
+            return (biomes != null) ? biomes.v : null;
+        });
+        this.terrainData = new TerrainData(() -> TagUtils.get(decodeLevel(SECTIONS), "Sections", Tag.List.class),
+                this.dataVersion);
+        this.heightMap = new HeightMap(() -> {
+            Tag.IntArray heights = TagUtils.get(decodeLevel(HEIGHT_MAP), "HeightMap", Tag.IntArray.class);
+            return (heights != null) ? heights.v : null;
+        }, terrainData);
     }
 
     /**
@@ -135,7 +158,7 @@ public class Chunk {
      * @param regionZ The Z position of the region the chunk is in.
      * */
     Chunk(int regionX, int regionZ) {
-        this.raw = null;
+        this.nbt = null;
         this.regionX = regionX;
         this.regionZ = regionZ;
         this.xPos = regionX << 5;
@@ -143,10 +166,100 @@ public class Chunk {
         this.lastUpdate = 0;
         this.biomeMap = new BiomeMap(new Tag.ByteArray("",new byte[16*16]));
         this.terrainData = new TerrainData();
+        this.heightMap = new HeightMap(() -> null, terrainData);
         this.inhabitedTime = 0;
         this.dataVersion = -1;
     }
 
+    /**
+     * Decodes the parts of this chunk's NBT data picked by the given selector.
+     *
+     * @param selector The selector deciding which tags are decoded.
+     *
+     * @return The chunk's root TAG_Compound, only containing the selected tags.
+     * <code>null</code> if the chunk hasn't been saved.
+     *
+     * @throws UncheckedIOException if the chunk's data is corrupt.
+     * */
+    private Tag.Compound decode(TagSelector selector) {
+        if(nbt == null) return null;
+        try {
+            return (Tag.Compound) new NbtReader(nbt).read(selector);
+        } catch(IOException x) {
+            throw new UncheckedIOException("Chunk " + xPos + ", " + zPos + " is corrupt", x);
+        }
+    }
+
+    /**
+     * Decodes the parts of this chunk's NBT data picked by the given selector and returns its
+     * <code>Level</code> TAG_Compound.
+     *
+     * @param selector The selector deciding which tags are decoded.
+     *
+     * @return The chunk's <code>Level</code> TAG_Compound, only containing the selected tags.
+     * <code>null</code> if the chunk hasn't been saved.
+     *
+     * @throws UncheckedIOException if the chunk's data is corrupt.
+     * */
+    private Tag.Compound decodeLevel(TagSelector selector) {
+        return TagUtils.get(decode(selector), "Level", Tag.Compound.class);
+    }
+
+    /**
+     * Decodes the list of compounds with the given name from the chunk's <code>Level</code> tag.
+     *
+     * @param name The name of the TAG_List.
+     * @param selector The selector picking the TAG_List.
+     *
+     * @return The compounds contained in the list. Empty if the list doesn't exist.
+     * */
+    private List<Tag.Compound> decodeCompoundList(String name, TagSelector selector) {
+        List<Tag.Compound> result = new ArrayList<>();
+        Tag.List list = TagUtils.get(decodeLevel(selector), name, Tag.List.class);
+        if(list != null) {
+            for(Tag t : list) {
+                if(t instanceof Tag.Compound) result.add((Tag.Compound) t);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Decodes the chunk's block entities. Each TAG_Compound in this list defines a block entity in the chunk.
+     * Note that the block entities are decoded again on each call.
+     *
+     * @return A new list containing the chunk's block entities.
+     *
+     * @throws UncheckedIOException if the chunk's data is corrupt.
+     * */
+    public List<Tag.Compound> getTileEntities() {
+        return decodeCompoundList("TileEntities", TILE_ENTITIES);
+    }
+
+    /**
+     * Decodes the chunk's entities. Each TAG_Compound in this list defines an entity in the chunk.
+     * Note that the entities are decoded again on each call.
+     *
+     * @return A new list containing the chunk's entities.
+     *
+     * @throws UncheckedIOException if the chunk's data is corrupt.
+     * */
+    public List<Tag.Compound> getEntities() {
+        return decodeCompoundList("Entities", ENTITIES);
+    }
+
+    /**
+     * Decodes the chunk's entire TAG_Compound. Use to get data not abstracted by this class.
+     * Note that the whole chunk is decoded again on each call.
+     *
+     * @return The chunk's entire TAG_Compound. <code>null</code> if the chunk hasn't been saved.
+     *
+     * @throws UncheckedIOException if the chunk's data is corrupt.
+     * */
+    public Tag.Compound getRaw() {
+        return decode(TagSelector.ALL);
+    }
+
     @Override
     public String toString() {
         return String.format("Chunk[%d, %d]", xPos, zPos);
@@ -157,27 +270,64 @@ public class Chunk {
      * */
     public static class TerrainData {
 
+        /**
+         * The name of air blocks.
+         * */
+        private static final String AIR_NAME = "minecraft:air";
+
+        /**
+         * The namespaced names of the block types, indexed by their numerical ID.
+         * */
+        private static final String[] LEGACY_NAMES = new String[4096];
+
+        static {
+            for(BlockType type : BlockType.values()) {
+                LEGACY_NAMES[type.numericalId] = "minecraft:" + type.id;
+            }
+        }
+
         /**
          * A list of all cubic sections of the chunk.
+         * <code>null</code> until the sections are first needed.
+         * */
+        private volatile Section[] sections;
+
+        /**
+         * Supplies the <code>Sections</code> TAG_List once the sections are first needed.
          * */
-        Section[] sections = new Section[16];
+        private final Supplier<Tag.List> source;
 
         /**
          * Whether the chunk hasn't been saved to disk.
          * */
         private final boolean missing;
 
+        /**
+         * Version of the chunk's NBT structure, deciding how palette based sections are packed.
+         * */
+        private final int dataVersion;
+
         /**
          * Creates a <code>TerrainData</code> object from the given TAG_List.
          *
          * @param raw The <code>Sections</code> TAG_List in the chunk's root tag.
+         * @param dataVersion Version of the chunk's NBT structure.
+         * */
+        TerrainData(Tag.List raw, int dataVersion) {
+            this(() -> raw, dataVersion);
+        }
+
+        /**
+         * Creates a <code>TerrainData</code> object that decodes its sections once they're first needed.
+         *
+         * @param source Supplies the <code>Sections</code> TAG_List in the chunk's root tag, or <code>null</code>
+         *               if the chunk has no sections.
+         * @param dataVersion Version of the chunk's NBT structure.
          * */
-        TerrainData(Tag.List raw) {
+        TerrainData(Supplier<Tag.List> source, int dataVersion) {
             this.missing = false;
-            for(Tag t : raw) {
-                Section sect = new Section((Tag.Compound) t);
-                sections[sect.yIndex] = sect;
-            }
+            this.source = source;
+            this.dataVersion = dataVersion;
         }
 
         /**
@@ -185,38 +335,224 @@ public class Chunk {
          * */
         TerrainData() {
             this.missing = true;
+            this.source = null;
+            this.dataVersion = -1;
+            this.sections = new Section[16];
+        }
+
+        /**
+         * Gets all sections of this chunk, decoding them if they haven't been yet.
+         *
+         * @return An array containing the sections by their y index.
+         * */
+        private Section[] getSections() {
+            Section[] sections = this.sections;
+            if(sections == null) {
+                sections = new Section[16];
+                Tag.List raw = source.get();
+                if(raw != null) {
+                    for(Tag t : raw) {
+                        Section sect = new Section((Tag.Compound) t, dataVersion);
+                        if(sect.yIndex >= 0 && sect.yIndex < sections.length) sections[sect.yIndex] = sect;
+                    }
+                }
+                this.sections = sections;
+            }
+            return sections;
         }
 
         /**
          * Gets the block at the given position.
          * Note that the coordinates are relative to the chunk, not to the world.
          *
-         * If the chunk is missing, it will return air.
+         * If the chunk is missing, or the block has no pre-1.13 block type, it will return air. Blocks of chunks
+         * saved since Minecraft 1.13 other than air have no numerical ID to look up a block type with, see
+         * {@link #getBlockId(int, int, int)}. Use {@link #getBlockName(int, int, int)} and
+         * {@link #getBlockProperties(int, int, int)} for those.
          *
          * @param x The x coordinate in the chunk's coordinate space.
          * @param y The y coordinate in the chunk's coordinate space.
          * @param z The z coordinate in the chunk's coordinate space.
+         *
+         * @throws UnsupportedOperationException if the block was saved since Minecraft 1.13 and isn't air.
          * */
         public Block getBlockAt(int x, int y, int z) {
-            if(missing) return Block.get(0,0);
-            Section sect = sections[y/16];
+            Section sect = getSection(y);
             if(sect == null) return Block.get(0,0);
-            if(y < Chunk.MIN_HEIGHT || y > Chunk.MAX_HEIGHT) return Block.get(0,0);
-            Block block = sect.getBlockAt(x, y % 16, z);
+            Block block = sect.getBlockAt(x, y & 15, z);
             return (block != null) ? block : Block.get(0,0);
         }
 
+        /**
+         * Gets the numerical block ID at the given position, without creating any block objects.
+         * Note that the coordinates are relative to the chunk, not to the world.
+         *
+         * If the chunk is missing, it will return 0 (air).
+         * Chunks saved since Minecraft 1.13 only store block names, which can't be mapped to numerical IDs without a
+         * table of the flattening. For those, the ID is 0 for all kinds of air and -1 for every other block; use
+         * {@link #getBlockName(int, int, int)} instead.
+         *
+         * @param x The x coordinate in the chunk's coordinate space.
+         * @param y The y coordinate in the chunk's coordinate space.
+         * @param z The z coordinate in the chunk's coordinate space.
+         *
+         * @return The numerical block ID at the given position.
+         * */
+        public int getBlockId(int x, int y, int z) {
+            Section sect = getSection(y);
+            return (sect != null) ? sect.getBlockId(x, y & 15, z) : 0;
+        }
+
+        /**
+         * Gets the namespaced name of the block at the given position, such as <code>minecraft:stone</code>.
+         * Unlike numerical IDs, names are exact for chunks saved both before and since Minecraft 1.13.
+         * Note that the coordinates are relative to the chunk, not to the world.
+         *
+         * If the chunk is missing, it will return <code>minecraft:air</code>.
+         *
+         * @param x The x coordinate in the chunk's coordinate space.
+         * @param y The y coordinate in the chunk's coordinate space.
+         * @param z The z coordinate in the chunk's coordinate space.
+         *
+         * @return The name of the block at the given position. <code>null</code> if the block has an unknown
+         * numerical ID.
+         * */
+        public String getBlockName(int x, int y, int z) {
+            Section sect = getSection(y);
+            return (sect != null) ? sect.getBlockName(x, y & 15, z) : AIR_NAME;
+        }
+
+        /**
+         * Gets the <code>Properties</code> of the block state at the given position, such as the <code>facing</code>
+         * of stairs. Only chunks saved since Minecraft 1.13 have block states; blocks saved before have data values
+         * instead, see {@link #getBlockData(int, int, int)}.
+         * Note that the coordinates are relative to the chunk, not to the world.
+         *
+         * If the chunk is missing, or was saved before Minecraft 1.13, it will return an empty map.
+         *
+         * @param x The x coordinate in the chunk's coordinate space.
+         * @param y The y coordinate in the chunk's coordinate space.
+         * @param z The z coordinate in the chunk's coordinate space.
+         *
+         * @return An immutable map of the property names to their values.
+         * */
+        public Map<String, String> getBlockProperties(int x, int y, int z) {
+            Section sect = getSection(y);
+            return (sect != null) ? sect.getBlockProperties(x, y & 15, z) : ImmutableMap.of();
+        }
+
+        /**
+         * Gets the block data value at the given position, without creating any block objects.
+         * Note that the coordinates are relative to the chunk, not to the world.
+         *
+         * If the chunk is missing, it will return 0. Chunks saved since Minecraft 1.13 have no data values, so it will
+         * return 0 for those as well.
+         *
+         * @param x The x coordinate in the chunk's coordinate space.
+         * @param y The y coordinate in the chunk's coordinate space.
+         * @param z The z coordinate in the chunk's coordinate space.
+         *
+         * @return The block data value at the given position.
+         * */
+        public int getBlockData(int x, int y, int z) {
+            Section sect = getSection(y);
+            return (sect != null) ? sect.getBlockData(x, y & 15, z) : 0;
+        }
+
+        /**
+         * Gets the y coordinate of the highest block in the given column that isn't air.
+         * Note that the coordinates are relative to the chunk, not to the world.
+         *
+         * @param x The x coordinate in the chunk's coordinate space.
+         * @param z The z coordinate in the chunk's coordinate space.
+         *
+         * @return The y coordinate of the highest non-air block in the column. -1 if the column only contains air.
+         * */
+        public int getHighestBlockY(int x, int z) {
+            if(missing) return -1;
+            Section[] sections = getSections();
+            for(int i = sections.length - 1; i >= 0; i--) {
+                Section sect = sections[i];
+                if(sect == null) continue;
+                for(int y = 15; y >= 0; y--) {
+                    if(sect.getBlockId(x, y, z) != 0) return sect.yPos + y;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Reads the numerical block IDs of an entire column into the given array, indexed by y coordinate.
+         * Note that the coordinates are relative to the chunk, not to the world.
+         * IDs are looked up as in {@link #getBlockId(int, int, int)}.
+         *
+         * If the chunk is missing, the column is filled with 0 (air).
+         *
+         * @param x The x coordinate in the chunk's coordinate space.
+         * @param z The z coordinate in the chunk's coordinate space.
+         * @param out The array to write the block IDs to. Only the first 256 entries are written.
+         *
+         * @return The given array.
+         * */
+        public int[] getColumn(int x, int z, int[] out) {
+            int height = Math.min(out.length, Chunk.MAX_HEIGHT + 1);
+            Section[] sections = missing ? null : getSections();
+            for(int i = 0; i * 16 < height; i++) {
+                Section sect = (sections != null) ? sections[i] : null;
+                int end = Math.min(height, i * 16 + 16);
+                if(sect == null) {
+                    Arrays.fill(out, i * 16, end, 0);
+                    continue;
+                }
+                for(int y = i * 16; y < end; y++) {
+                    out[y] = sect.getBlockId(x, y & 15, z);
+                }
+            }
+            return out;
+        }
+
+        /**
+         * Gets the section containing the given y coordinate.
+         *
+         * @param y The y coordinate in the chunk's coordinate space.
+         *
+         * @return The section containing the y coordinate. <code>null</code> if the chunk is missing,
+         * the section hasn't been saved or the coordinate is out of the world's height bounds.
+         * */
+        private Section getSection(int y) {
+            if(missing) return null;
+            if(y < Chunk.MIN_HEIGHT || y > Chunk.MAX_HEIGHT) return null;
+            return getSections()[y >> 4];
+        }
+
+        /**
+         * Gets the section with the given y index.
+         *
+         * @param yIndex The y index of the section, between 0 and 15, inclusive.
+         *
+         * @return The section. <code>null</code> if the chunk is missing or the section hasn't been saved.
+         * */
+        Section getSectionAt(int yIndex) {
+            return missing ? null : getSections()[yIndex];
+        }
+
         @Override
         public String toString() {
             return "TerrainData{" +
-                    "sections=" + Arrays.toString(sections) +
+                    "sections=" + Arrays.toString(getSections()) +
                     '}';
         }
 
         /**
          * Class representing a cubic section of a chunk's terrain data.
+         *
+         * Blocks saved before Minecraft 1.13 are kept in the compact form they're saved in: one byte per block for the
+         * lower 8 bits of the ID, and one nibble per block for both the upper 4 bits of the ID and the data value.
+         * Sections saved since then consist of a <code>Palette</code> of block states and the bit-packed
+         * <code>BlockStates</code> longs indexing it, which are unpacked into one palette index per block when the
+         * section is decoded. Block objects are only looked up once requested.
          * */
-        private static class Section {
+        static class Section {
             /**
              * The y index of the section. Not to be confused with the y coordinate.
              * Equal to the y coordinate mod 16.
@@ -229,65 +565,286 @@ public class Chunk {
             int yPos;
 
             /**
-             * The TAG_Compound that makes up this section.
+             * The <code>Blocks</code> array, containing the lower 8 bits of each block's ID in YZX order.
+             * <code>null</code> if the section has no blocks.
              * */
-            Tag.Compound raw;
+            byte[] blocks;
+            /**
+             * The <code>Add</code> nibble array, containing the upper 4 bits of each block's ID in YZX order.
+             * <code>null</code> if no block in this section has an ID above 255.
+             * */
+            byte[] add;
+            /**
+             * The <code>Data</code> nibble array, containing each block's data value in YZX order.
+             * <code>null</code> if it wasn't saved.
+             * */
+            byte[] data;
 
             /**
-             * Whether this section's blocks have been loaded into the object.
+             * The names of the block states in the section's <code>Palette</code>.
+             * <code>null</code> if the section was saved before Minecraft 1.13.
+             * */
+            String[] palette;
+            /**
+             * The <code>Properties</code> of the block states in the section's <code>Palette</code>, as immutable maps.
+             * <code>null</code> if the section was saved before Minecraft 1.13.
              * */
-            boolean populated = false;
+            List<Map<String, String>> paletteProperties;
             /**
-             * Three-dimensional array containing all the blocks in the section.
+             * The numerical block IDs of the palette's block states: 0 for all kinds of air and -1 for every other
+             * block, whose pre-1.13 ID is unknown.
              * */
-            Block[][][] blocks = new Block[16][16][16];
+            int[] paletteIds;
+            /**
+             * The palette index of each block in YZX order, unpacked from the <code>BlockStates</code> long array.
+             * <code>null</code> if the section has no palette or no blocks.
+             * */
+            int[] states;
 
             /**
              * Creates a <code>Section</code> from the given compound TAG_Compound.
              *
              * @param raw A TAG_Compound within the <code>Sections</code> tag.
+             * @param dataVersion Version of the chunk's NBT structure.
              * */
-            Section(Tag.Compound raw) {
-                this.raw = raw;
+            Section(Tag.Compound raw, int dataVersion) {
+                Tag.List rawPalette = null;
+                long[] blockStates = null;
                 for(Tag t : raw) {
-                    if (TagUtils.match(t, "Y", Tag.Byte.class)) this.yIndex = ((Tag.Byte) t).v;
+                    if(TagUtils.match(t, "Y", Tag.Byte.class)) this.yIndex = ((Tag.Byte) t).v;
+                    else if(TagUtils.match(t, "Blocks", Tag.ByteArray.class)) blocks = ((Tag.ByteArray) t).v;
+                    else if(TagUtils.match(t, "Add", Tag.ByteArray.class)) add = ((Tag.ByteArray) t).v;
+                    else if(TagUtils.match(t, "Data", Tag.ByteArray.class)) data = ((Tag.ByteArray) t).v;
+                    else if(TagUtils.match(t, "Palette", Tag.List.class)) rawPalette = (Tag.List) t;
+                    else if(TagUtils.match(t, "BlockStates", Tag.LongArray.class)) blockStates = ((Tag.LongArray) t).v;
                 }
                 this.yPos = yIndex * 16;
+                if(rawPalette != null) {
+                    readPalette(rawPalette);
+                    if(blockStates != null && palette.length > 0) {
+                        states = unpack(blockStates, palette.length, dataVersion >= NON_SPANNING_DATA_VERSION);
+                    }
+                }
             }
 
             /**
-             * Loads all this section's blocks into memory once needed.
+             * Reads the names and properties of the given palette's block states.
+             *
+             * @param rawPalette The <code>Palette</code> TAG_List of the section.
              * */
-            private void populateBlocks() {
-                if(populated) return;
-                populated = true;
-                byte[] blocks = null;
-                byte[] add = null;
-                byte[] data = null;
+            private void readPalette(Tag.List rawPalette) {
+                palette = new String[rawPalette.getSize()];
+                paletteIds = new int[palette.length];
+                paletteProperties = new ArrayList<>(palette.length);
+                int i = 0;
+                for(Tag t : rawPalette) {
+                    Tag.Compound entry = (t instanceof Tag.Compound) ? (Tag.Compound) t : null;
+                    Tag.String name = (entry != null) ? TagUtils.get(entry, "Name", Tag.String.class) : null;
+                    Tag.Compound properties = (entry != null) ? TagUtils.get(entry, "Properties", Tag.Compound.class) : null;
+                    palette[i] = (name != null) ? name.v : AIR_NAME;
+                    paletteIds[i] = isAir(palette[i]) ? 0 : -1;
+                    paletteProperties.add(readProperties(properties));
+                    i++;
+                }
+            }
+
+            /**
+             * Reads the <code>Properties</code> of a palette entry.
+             *
+             * @param raw The <code>Properties</code> TAG_Compound of the entry, or <code>null</code> if it has none.
+             *
+             * @return An immutable map of the property names to their values.
+             * */
+            private static Map<String, String> readProperties(Tag.Compound raw) {
+                if(raw == null) return ImmutableMap.of();
+                ImmutableMap.Builder<String, String> properties = ImmutableMap.builder();
                 for(Tag t : raw) {
-                    if(TagUtils.match(t, "Blocks", Tag.ByteArray.class)) blocks = ((Tag.ByteArray) t).v;
-                    else if(TagUtils.match(t, "Add", Tag.ByteArray.class)) add = ((Tag.ByteArray) t).v;
-                    else if(TagUtils.match(t, "Data", Tag.ByteArray.class)) data = ((Tag.ByteArray) t).v;
+                    if(t instanceof Tag.String) properties.put(t.getName(), ((Tag.String) t).v);
                 }
+                return properties.build();
+            }
 
-                if(blocks == null) return;
+            /**
+             * Checks whether the block with the given name is any kind of air.
+             *
+             * Other names aren't mapped to numerical IDs: many blocks were renamed or split up in Minecraft 1.13, and
+             * names such as <code>minecraft:grass</code> now denote different blocks than the pre-1.13 block types of the
+             * same name.
+             *
+             * @param name The namespaced name of the block.
+             *
+             * @return Whether the block is air, cave air or void air.
+             * */
+            private static boolean isAir(String name) {
+                switch(name) {
+                    case "minecraft:air":
+                    case "minecraft:cave_air":
+                    case "minecraft:void_air":
+                        return true;
+                    default:
+                        return false;
+                }
+            }
 
-                int blockIndex = 0;
-                for(int y = 0; y < 16; y++) {
-                    for(int z = 0; z < 16; z++) {
-                        for(int x = 0; x < 16; x++) {
-                            int blockId = blocks[blockIndex] & 255;
-                            if(add != null) blockId += add[blockIndex] << 8;
-                            int blockData = 0;
-                            if(data != null) {
-                                if((x & 1) == 0) blockData = (data[blockIndex/2] & 255) & 15;
-                                else blockData = ((data[blockIndex/2] & 255) & 240) >> 4;
-                            }
-                            this.blocks[x][y][z] = Block.get(blockId, blockData);
-                            blockIndex++;
+            /**
+             * Unpacks a <code>BlockStates</code> long array into one palette index per block.
+             *
+             * Each index takes up as many bits as needed for the largest palette index, but at least 4. Before
+             * 20w17a, indices were packed back to back and could span two longs. Since then, each long contains as
+             * many whole indices as fit and leaves the remaining upper bits unused. Both layouts are identical if
+             * the number of bits divides 64.
+             *
+             * @param packed The <code>BlockStates</code> long array.
+             * @param paletteSize The number of entries in the section's palette.
+             * @param nonSpanning Whether indices never span two longs.
+             *
+             * @return The palette indices in YZX order. <code>null</code> if the array has an unexpected length.
+             * */
+            private static int[] unpack(long[] packed, int paletteSize, boolean nonSpanning) {
+                int bits = Math.max(4, 32 - Integer.numberOfLeadingZeros(paletteSize - 1));
+                int perLong = 64 / bits;
+                boolean aligned = nonSpanning || perLong * bits == 64;
+                int expected = aligned ? (4096 + perLong - 1) / perLong : 4096 * bits / 64;
+                if(packed.length != expected) return null;
+
+                int[] states = new int[4096];
+                long mask = (1L << bits) - 1;
+                if(aligned) {
+                    //Whole longs at a time, with a constant trip count the JIT can unroll
+                    int i = 0;
+                    int full = 4096 / perLong;
+                    for(int l = 0; l < full; l++) {
+                        long word = packed[l];
+                        for(int j = 0; j < perLong; j++) {
+                            states[i++] = (int) (word & mask);
+                            word >>>= bits;
                         }
                     }
+                    long word = (i < 4096) ? packed[full] : 0;
+                    for(; i < 4096; i++) {
+                        states[i] = (int) (word & mask);
+                        word >>>= bits;
+                    }
+                } else {
+                    long bit = 0;
+                    for(int i = 0; i < 4096; i++, bit += bits) {
+                        int l = (int) (bit >>> 6);
+                        int offset = (int) (bit & 63);
+                        long value = packed[l] >>> offset;
+                        if(offset + bits > 64) value |= packed[l + 1] << (64 - offset);
+                        states[i] = (int) (value & mask);
+                    }
+                }
+                return states;
+            }
+
+            /**
+             * Gets the palette index of the block at the given index, guarding against indices outside the palette.
+             *
+             * @param index The YZX index of the block.
+             *
+             * @return The palette index, or 0 if it's out of bounds.
+             * */
+            private int getPaletteIndex(int index) {
+                int state = states[index];
+                return (state < palette.length) ? state : 0;
+            }
+
+            /**
+             * Gets the index of the given coordinate in this section's arrays.
+             *
+             * @param x The x coordinate in the section's coordinate space.
+             * @param y The y coordinate in the section's coordinate space.
+             * @param z The z coordinate in the section's coordinate space.
+             *
+             * @return The YZX index of the coordinate.
+             * */
+            static int indexOf(int x, int y, int z) {
+                return (y << 8) | (z << 4) | x;
+            }
+
+            /**
+             * Reads a single nibble out of a nibble array.
+             *
+             * @param nibbles The nibble array, containing two values per byte. Even indices are stored in the lower half.
+             * @param index The index of the nibble.
+             *
+             * @return The value of the nibble, between 0 and 15, inclusive.
+             * */
+            static int getNibble(byte[] nibbles, int index) {
+                int b = nibbles[index >> 1];
+                return ((index & 1) == 0) ? (b & 15) : ((b >> 4) & 15);
+            }
+
+            /**
+             * Gets the numerical block ID at the given coordinate. Note that the coordinates are relative to the
+             * section's origin, as in, the coordinates in all three axes must be between 0 and 15, inclusive.
+             *
+             * @param x The x coordinate in the section's coordinate space.
+             * @param y The y coordinate in the section's coordinate space.
+             * @param z The z coordinate in the section's coordinate space.
+             *
+             * @return The numerical block ID at the given position.
+             * */
+            int getBlockId(int x, int y, int z) {
+                if(palette != null) {
+                    return (states != null) ? paletteIds[getPaletteIndex(indexOf(x, y, z))] : 0;
+                }
+                if(blocks == null) return 0;
+                int index = indexOf(x, y, z);
+                int blockId = blocks[index] & 255;
+                if(add != null) blockId |= getNibble(add, index) << 8;
+                return blockId;
+            }
+
+            /**
+             * Gets the block data value at the given coordinate. Note that the coordinates are relative to the
+             * section's origin, as in, the coordinates in all three axes must be between 0 and 15, inclusive.
+             *
+             * @param x The x coordinate in the section's coordinate space.
+             * @param y The y coordinate in the section's coordinate space.
+             * @param z The z coordinate in the section's coordinate space.
+             *
+             * @return The block data value at the given position.
+             * */
+            int getBlockData(int x, int y, int z) {
+                if(blocks == null || data == null) return 0;
+                return getNibble(data, indexOf(x, y, z));
+            }
+
+            /**
+             * Gets the namespaced name of the block at the given coordinate. Note that the coordinates are relative to
+             * the section's origin, as in, the coordinates in all three axes must be between 0 and 15, inclusive.
+             *
+             * @param x The x coordinate in the section's coordinate space.
+             * @param y The y coordinate in the section's coordinate space.
+             * @param z The z coordinate in the section's coordinate space.
+             *
+             * @return The name of the block at the given position. <code>null</code> if the block has an unknown
+             * numerical ID.
+             * */
+            String getBlockName(int x, int y, int z) {
+                if(palette != null) {
+                    return (states != null) ? palette[getPaletteIndex(indexOf(x, y, z))] : AIR_NAME;
                 }
+                return LEGACY_NAMES[getBlockId(x, y, z)];
+            }
+
+            /**
+             * Gets the <code>Properties</code> of the block state at the given coordinate. Note that the coordinates are
+             * relative to the section's origin, as in, the coordinates in all three axes must be between 0 and 15,
+             * inclusive.
+             *
+             * @param x The x coordinate in the section's coordinate space.
+             * @param y The y coordinate in the section's coordinate space.
+             * @param z The z coordinate in the section's coordinate space.
+             *
+             * @return An immutable map of the property names to their values. Empty if the section was saved before
+             * Minecraft 1.13.
+             * */
+            Map<String, String> getBlockProperties(int x, int y, int z) {
+                if(palette == null || states == null) return ImmutableMap.of();
+                return paletteProperties.get(getPaletteIndex(indexOf(x, y, z)));
             }
 
             /**
@@ -298,11 +855,17 @@ public class Chunk {
              * @param y The y coordinate in the section's coordinate space.
              * @param z The z coordinate in the section's coordinate space.
              *
-             * @return The block object at the given position.
+             * @return The block object at the given position. <code>null</code> if the block has an unknown numerical ID.
+             *
+             * @throws UnsupportedOperationException if the section was saved since Minecraft 1.13 and the block isn't air.
              * */
             Block getBlockAt(int x, int y, int z) {
-                populateBlocks();
-                return blocks[x][y][z];
+                int id = getBlockId(x, y, z);
+                if(id < 0) {
+                    throw new UnsupportedOperationException("The block " + getBlockName(x, y, z) + " at " + x + ", "
+                            + (yPos + y) + ", " + z + " in the chunk has no pre-1.13 block type, use its name instead");
+                }
+                return Block.get(id, getBlockData(x, y, z));
             }
 
             @Override
@@ -318,7 +881,8 @@ public class Chunk {
                             sb.append(',');
                             sb.append(z);
                             sb.append("): ");
-                            sb.append(blocks[x][y][z]);
+                            if(palette != null) sb.append(getBlockName(x, y, z)).append(getBlockProperties(x, y, z));
+                            else sb.append(getBlockAt(x, y, z));
                         }
                     }
                 }
@@ -327,6 +891,82 @@ public class Chunk {
         }
     }
 
+    /**
+     * Class tasked to read the height of each of a chunk's columns.
+     * */
+    public static class HeightMap {
+        /**
+         * Supplies the contents of the chunk's <code>HeightMap</code> tag once it's first needed.
+         * Returns <code>null</code> if the chunk has no height map.
+         * */
+        private final Supplier<int[]> raw;
+
+        /**
+         * The terrain the heights are calculated from if the chunk has no saved height map.
+         * */
+        private final TerrainData terrainData;
+
+        /**
+         * A flat array containing the height of each column in ZX order.
+         * <code>null</code> until the heights are first needed.
+         * */
+        private volatile int[] heights;
+
+        /**
+         * Creates a <code>HeightMap</code> that reads the chunk's heights once they're first needed.
+         *
+         * @param raw Supplies the contents of the <code>HeightMap</code> TAG_Int_Array within the chunk's root tag.
+         * @param terrainData The terrain to calculate the heights from if no height map was saved.
+         * */
+        HeightMap(Supplier<int[]> raw, TerrainData terrainData) {
+            this.raw = raw;
+            this.terrainData = terrainData;
+        }
+
+        /**
+         * Loads all this chunk's heights into memory.
+         *
+         * @return A flat array containing the height of each column in ZX order.
+         * */
+        private int[] getHeights() {
+            int[] heights = this.heights;
+            if(heights == null) {
+                heights = raw.get();
+                if(heights == null || heights.length < 16*16) {
+                    heights = new int[16*16];
+                    for(int z = 0; z < 16; z++) {
+                        for(int x = 0; x < 16; x++) {
+                            heights[z*16 + x] = terrainData.getHighestBlockY(x, z) + 1;
+                        }
+                    }
+                }
+                this.heights = heights;
+            }
+            return heights;
+        }
+
+        /**
+         * Gets the height of the given column, as in, the y coordinate right above its highest block that blocks
+         * light. If the chunk has no saved height map, the y coordinate right above its highest non-air block is
+         * returned instead.
+         * Note that the coordinates are relative to the chunk's origin, as in, the coordinates in both axes must be
+         * between 0 and 15, inclusive.
+         *
+         * @param x The x coordinate in the chunk's coordinate space.
+         * @param z The z coordinate in the chunk's coordinate space.
+         *
+         * @return The height of the given column.
+         * */
+        public int getHeight(int x, int z) {
+            return getHeights()[z*16 + x];
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(getHeights());
+        }
+    }
+
     /**
      * Class tasked to read information about a chunk's biomes in each column.
      * */
@@ -337,14 +977,14 @@ public class Chunk {
         private Chunk.Biome[] flatMap = new Chunk.Biome[16*16];
 
         /**
-         * The TAG_Byte_Array containing the raw biome info.
+         * Supplies the raw biome info once it's first needed. Returns <code>null</code> if the chunk has no biomes.
          * */
-        private Tag.ByteArray raw;
+        private final Supplier<byte[]> raw;
 
         /**
          * Whether the chunk'ss biomes have been loaded into the object.
          * */
-        private boolean populated = false;
+        private volatile boolean populated = false;
 
         /**
          * Creates a <code>BiomeMap</code> from the given TAG_Byte_Array.
@@ -352,6 +992,15 @@ public class Chunk {
          * @param raw The <code>Biomes</code> TAG_Byte_Array within the chunk's root tag.
          * */
         BiomeMap(Tag.ByteArray raw) {
+            this(() -> raw.v);
+        }
+
+        /**
+         * Creates a <code>BiomeMap</code> that decodes the chunk's biomes once they're first needed.
+         *
+         * @param raw Supplies the contents of the <code>Biomes</code> TAG_Byte_Array within the chunk's root tag.
+         * */
+        BiomeMap(Supplier<byte[]> raw) {
             this.raw = raw;
         }
 
@@ -360,15 +1009,18 @@ public class Chunk {
          * */
         private void populateMap() {
             if(populated) return;
-            populated = true;
-            byte[] allBytes = raw.v;
+            byte[] allBytes = raw.get();
 
-            int i = 0;
-            for(byte id : allBytes) {
-                Biome biome = Biome.getBiomeById(id & 255);
-                flatMap[i] = biome;
-                i++;
+            if(allBytes != null) {
+                int i = 0;
+                for(byte id : allBytes) {
+                    if(i >= flatMap.length) break;
+                    Biome biome = Biome.getBiomeById(id & 255);
+                    flatMap[i] = biome;
+                    i++;
+                }
             }
+            populated = true;
         }
 
         /**
@@ -387,6 +1039,7 @@ public class Chunk {
 
         @Override
         public String toString() {
+            populateMap();
             return Arrays.toString(flatMap);
         }
     }
@@ -468,6 +1121,17 @@ public class Chunk {
          * */
         public final String name;
 
+        /**
+         * The biomes indexed by their numerical ID.
+         * */
+        private static final Biome[] BY_ID = new Biome[256];
+
+        static {
+            for(Biome biome : values()) {
+                BY_ID[biome.id] = biome;
+            }
+        }
+
         /**
          * Creates a biome.
          * Numerical id defaults to the enum value's ordinal.
@@ -525,17 +1189,7 @@ public class Chunk {
          * @return The biome object representing this numerical biome ID. <code>null</code> if it doesn't exist.
          * */
         public static Biome getBiomeById(int id) {
-            Biome[] values = values();
-
-            if(id >= 0 && id < values.length) {
-                Biome guess = values[id];
-                if(guess.id == id) return guess;
-            }
-
-            for(Biome b : values) {
-                if(b.id == id) return b;
-            }
-            return null;
+            return (id >= 0 && id < BY_ID.length) ? BY_ID[id] : null;
         }
     }
 }
\ No newline at end of file
@@ -9,31 +9,51 @@ import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.zip.InflaterInputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+
+import javax.annotation.concurrent.ThreadSafe;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.energyxxer.inject.level_utils.block.Block;
+import com.energyxxer.inject.level_utils.nbt.Compression;
 import com.energyxxer.inject.level_utils.nbt.Tag;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Striped;
 
 import de.adrodoc55.minecraft.coordinate.Vec3I;
+import de.adrodoc55.minecraft.structure.BlockState;
+import de.adrodoc55.minecraft.structure.SimpleBlock;
+import de.adrodoc55.minecraft.structure.SimpleBlockState;
+import de.adrodoc55.minecraft.structure.Structure;
 
 /**
- * Class for reading a level's chunks.
+ * Class for reading a level's chunks. A level reader may be shared between threads.
  */
+@ThreadSafe
 public class LevelReader {
     private static final Logger LOGGER = LogManager.getLogger();
+    /**
+     * The data version of structures read by {@link #readStructure(Vec3I, Vec3I, int)} if none of their chunks
+     * specify a newer one.
+     */
+    private static final int STRUCTURE_DATA_VERSION = 922;
+    private static final String STRUCTURE_AUTHOR = "Vanilla-Injection";
     private static final ScheduledExecutorService commonExecutor =
         Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
           @Override
@@ -50,15 +70,28 @@ public class LevelReader {
     private final Path worldDir;
 
     /**
-     * Map containing all the chunks previously read, per dimension.
+     * Map containing all the chunks previously read or currently being read, per dimension. The chunks are keyed by
+     * their packed chunk coordinates. Concurrent requests for the same chunk share the same future, so that each
+     * chunk is only read once.
+     */
+    private final ConcurrentMap<Integer, ConcurrentMap<Long, CompletableFuture<Chunk>>> chunkMemory =
+        new ConcurrentHashMap<>();
+
+    /**
+     * Locks guarding access to the region files, striped by region file.
      */
-    private final Map<Integer, ArrayList<Chunk>> chunkMemory = new ConcurrentHashMap<>();
+    private final Striped<Lock> regionLocks = Striped.lock(16);
+
+    /**
+     * The buffer each thread reads compressed chunk data into, grown as needed.
+     * */
+    private static final ThreadLocal<byte[]> CHUNK_BUFFER = ThreadLocal.withInitial(() -> new byte[16 * 1024]);
 
     /**
      * How long to keep read chunks in memory for (in {@link #chunkRefreshTimeUnit}).
      */
-    private long chunkRefreshDelay = 1;
-    private TimeUnit chunkRefreshTimeUnit = SECONDS;
+    private volatile long chunkRefreshDelay = 1;
+    private volatile TimeUnit chunkRefreshTimeUnit = SECONDS;
 
     /**
      * @param worldDir the {@link #worldDir}
@@ -75,13 +108,15 @@ public class LevelReader {
      * coordinates. In Java, transforming world coordinates to chunk coordinates would be:
      * <br>
      * <pre>
-     * int chunkX = (int) Math.floor(x / 16f);
-     * int chunkZ = (int) Math.floor(z / 16f);</pre>
+     * int chunkX = x &gt;&gt; 4;
+     * int chunkZ = z &gt;&gt; 4;</pre>
      *
      * @param chunkX The chunk's X position.
      * @param chunkZ The chunk's Z position.
      *
      * @return The chunk object at the given position in the overworld.
+     *
+     * @throws UncheckedIOException if the region file can't be read or the chunk's data is corrupt.
      * */
     public Chunk readChunk(int chunkX, int chunkZ) {
         return this.readChunk(chunkX, chunkZ, 0);
@@ -94,91 +129,126 @@ public class LevelReader {
      * coordinates. In Java, transforming world coordinates to chunk coordinates would be:
      * <br>
      * <pre>
-     * int chunkX = (int) Math.floor(x / 16f);
-     * int chunkZ = (int) Math.floor(z / 16f);</pre>
+     * int chunkX = x &gt;&gt; 4;
+     * int chunkZ = z &gt;&gt; 4;</pre>
      *
      * @param chunkX The chunk's X position.
      * @param chunkZ The chunk's Z position.
      * @param dim The dimension number (Nether -1, Overworld 0, End 1).
      *
      * @return The chunk object at the position in the specified dimension.
+     *
+     * @throws UncheckedIOException if the region file can't be read or the chunk's data is corrupt. Failed reads
+     * aren't kept in memory, so the next call reads the chunk again.
      * */
     public Chunk readChunk(int chunkX, int chunkZ, int dim) {
-        //Check in memory
-        if(chunkMemory.containsKey(dim)) {
-            ArrayList<Chunk> chunksForDim = chunkMemory.get(dim);
-            for(Chunk c : chunksForDim) {
-                if(c.xPos == chunkX && c.zPos == chunkZ) {
-                    return c;
+        ConcurrentMap<Long, CompletableFuture<Chunk>> chunksForDim =
+            chunkMemory.computeIfAbsent(dim, d -> new ConcurrentHashMap<>());
+        Long key = ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+
+        //Check in memory, or wait for another thread that is already reading the chunk
+        CompletableFuture<Chunk> future = chunksForDim.get(key);
+        if(future == null) {
+            CompletableFuture<Chunk> newFuture = new CompletableFuture<>();
+            future = chunksForDim.putIfAbsent(key, newFuture);
+            if(future == null) {
+                scheduleChunkRefresh();
+                try {
+                    Chunk chunk = loadChunk(chunkX, chunkZ, dim);
+                    newFuture.complete(chunk);
+                    return chunk;
+                } catch(RuntimeException | Error x) {
+                    chunksForDim.remove(key, newFuture);
+                    newFuture.completeExceptionally(x);
+                    throw x;
                 }
             }
         }
+        try {
+            return future.join();
+        } catch(CompletionException x) {
+            Throwables.throwIfUnchecked(x.getCause());
+            throw x;
+        }
+    }
 
+    /**
+     * Reads a chunk from its region file, bypassing the chunk memory.
+     *
+     * @param chunkX The chunk's X position.
+     * @param chunkZ The chunk's Z position.
+     * @param dim The dimension number (Nether -1, Overworld 0, End 1).
+     *
+     * @return The chunk object at the position in the specified dimension. An empty chunk if it hasn't been saved.
+     *
+     * @throws UncheckedIOException if the region file can't be read or the chunk's data is corrupt.
+     * */
+    private Chunk loadChunk(int chunkX, int chunkZ, int dim) {
         int regionX = chunkX >> 5;
         int regionZ = chunkZ >> 5;
 
-        int inRegionX = chunkX % 32;
-        int inRegionZ = chunkZ % 32;
-        if(inRegionX < 0) inRegionX += 32;
-        if(inRegionZ < 0) inRegionZ += 32;
+        int inRegionX = chunkX & 31;
+        int inRegionZ = chunkZ & 31;
 
         File rf = new File(this.getPathForDimension(dim)+File.separator+"r."+regionX+'.'+regionZ+".mca");
+        if(!rf.isFile()) {
+            return new Chunk(regionX, regionZ);
+        }
 
-        scheduleChunkRefresh();
-
-        try(RandomAccessFile region = new RandomAccessFile(rf,"r")) {
-            long seek = ((inRegionX%32) + (inRegionZ%32)*32);
-            region.seek(seek*4);
-
-            //Location Table
-            final byte[] locationEntry = new byte[4];
-            int offset;
-            region.readFully(locationEntry);
-            try(DataInputStream dis = new DataInputStream(new ByteArrayInputStream(new byte[]{0, locationEntry[0], locationEntry[1], locationEntry[2]}))) {
-                offset = dis.readInt()*4096;
-            }
-            int size = locationEntry[3]*4096;
+        try {
+            byte[] chunkBytes;
+            int chunkLength;
+            Compression compression;
+
+            //Only one thread at a time may read from the same region file
+            Lock regionLock = regionLocks.get(rf);
+            regionLock.lock();
+            try(RandomAccessFile region = new RandomAccessFile(rf,"r")) {
+                long seek = (inRegionX + inRegionZ*32);
+                region.seek(seek*4);
+
+                //Location Table
+                final byte[] locationEntry = new byte[4];
+                int offset;
+                region.readFully(locationEntry);
+                try(DataInputStream dis = new DataInputStream(new ByteArrayInputStream(new byte[]{0, locationEntry[0], locationEntry[1], locationEntry[2]}))) {
+                    offset = dis.readInt()*4096;
+                }
+                int size = (locationEntry[3] & 0xFF)*4096;
 
-            //Back in getChunk
-            if(offset > 0 && size > 0) {
+                //Back in getChunk
+                if(offset <= 0 || size <= 0) {
+                    return new Chunk(regionX, regionZ);
+                }
                 region.seek(offset);
 
                 int length = region.readInt();
-                byte compression = region.readByte();
-
-                byte[] chunkBytes = new byte[length-1];
-                region.readFully(chunkBytes);
-
-                try(InputStream is = new InflaterInputStream(new ByteArrayInputStream(chunkBytes))) {
-                    Chunk chunk = new Chunk((Tag.Compound) Tag.deserialize(is), regionX, regionZ);
-
-                    if(chunkMemory.containsKey(dim)) {
-                        ArrayList<Chunk> chunksForDim = chunkMemory.get(dim);
-                        boolean refresh = false;
-                        for(Chunk c : chunksForDim) {
-                            if(c.xPos == chunkX && c.zPos == chunkZ) {
-                                if(chunk.lastUpdate == c.lastUpdate) {
-                                    return c;
-                                } else {
-                                    refresh = true;
-                                    break;
-                                }
-                            }
-                        }
-                        if(refresh) chunksForDim.removeIf(c1 -> c1.regionX == regionX && c1.regionZ == regionZ);
-                    }
+                byte compressionId = region.readByte();
+                compression = Compression.fromId(compressionId);
+                if(compression == null) {
+                    throw new IOException("Unknown compression type " + compressionId + " of chunk " + chunkX + ", " + chunkZ);
+                }
 
-                    chunkMemory.putIfAbsent(dim,new ArrayList<>());
-                    chunkMemory.get(dim).add(chunk);
-                    return chunk;
+                chunkLength = length-1;
+                //The length includes the compression type and must fit into the sectors of the chunk
+                if(chunkLength < 0 || chunkLength > size - 5) {
+                    throw new IOException("Length " + length + " of chunk " + chunkX + ", " + chunkZ + " exceeds its " + size/4096 + " sectors");
+                }
+                chunkBytes = CHUNK_BUFFER.get();
+                if(chunkBytes.length < chunkLength) {
+                    chunkBytes = new byte[Math.max(chunkLength, chunkBytes.length * 2)];
+                    CHUNK_BUFFER.set(chunkBytes);
                 }
+                region.readFully(chunkBytes, 0, chunkLength);
+            } finally {
+                regionLock.unlock();
             }
 
-
+            //Decompressing and parsing doesn't need the region file anymore
+            return new Chunk(compression.decompress(chunkBytes, 0, chunkLength), regionX, regionZ);
         } catch(IOException x) {
-            x.printStackTrace();
+            throw new UncheckedIOException("Chunk " + chunkX + ", " + chunkZ + " of " + rf + " can't be read", x);
         }
-        return new Chunk(regionX, regionZ);
     }
 
     /**
@@ -188,6 +258,9 @@ public class LevelReader {
      * @param pos The point in a world coordinate space.
      *
      * @return The block object at the specified position in the overworld.
+     *
+     * @throws UnsupportedOperationException if the block was saved since Minecraft 1.13 and isn't air, see
+     * {@link #getBlockStateAtPos(int, int, int, int)}.
      * */
     public Block getBlockAtPos(Vec3I pos) {
         return getBlockAtPos(pos.x, pos.y, pos.z);
@@ -201,6 +274,9 @@ public class LevelReader {
      * @param dim The dimension number (Nether -1, Overworld 0, End 1).
      *
      * @return The block object at the position in the dimension specified.
+     *
+     * @throws UnsupportedOperationException if the block was saved since Minecraft 1.13 and isn't air, see
+     * {@link #getBlockStateAtPos(int, int, int, int)}.
      * */
     public Block getBlockAtPos(Vec3I pos, int dim) {
         return getBlockAtPos(pos.x, pos.y, pos.z, dim);
@@ -215,6 +291,9 @@ public class LevelReader {
      * @param z The z coordinate.
      *
      * @return The block object at the specified position in the overworld.
+     *
+     * @throws UnsupportedOperationException if the block was saved since Minecraft 1.13 and isn't air, see
+     * {@link #getBlockStateAtPos(int, int, int, int)}.
      * */
     public Block getBlockAtPos(int x, int y, int z) {
         return getBlockAtPos(x, y, z, 0);
@@ -230,13 +309,93 @@ public class LevelReader {
      * @param dim The dimension number (Nether -1, Overworld 0, End 1).
      *
      * @return The block object at the position in the dimension specified.
+     *
+     * @throws UnsupportedOperationException if the block was saved since Minecraft 1.13 and isn't air, see
+     * {@link #getBlockStateAtPos(int, int, int, int)}.
      * */
     public Block getBlockAtPos(int x, int y, int z, int dim) {
         Chunk chunk = getChunkAtPos(x, z, dim);
 
-        Vec3I pos = getInChunkPos(x, y, z);
+        return chunk.terrainData.getBlockAt(x & 15, y, z & 15);
+    }
 
-        return chunk.terrainData.getBlockAt(pos.x, pos.y, pos.z);
+    /**
+     * Gets the namespaced name of the block at the position in the specified dimension, such as
+     * <code>minecraft:stone</code>. Unlike numerical IDs, names are exact for chunks saved both before and since
+     * Minecraft 1.13.
+     * Note that this loads the chunk into memory.
+     *
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @param z The z coordinate.
+     * @param dim The dimension number (Nether -1, Overworld 0, End 1).
+     *
+     * @return The name of the block at the position in the dimension specified. <code>null</code> if the block has an
+     * unknown numerical ID.
+     * */
+    public String getBlockNameAtPos(int x, int y, int z, int dim) {
+        Chunk chunk = getChunkAtPos(x, z, dim);
+
+        return chunk.terrainData.getBlockName(x & 15, y, z & 15);
+    }
+
+    /**
+     * Gets the block state at the position in the specified dimension: the block's name along with its properties,
+     * such as the <code>facing</code> of stairs. Blocks saved before Minecraft 1.13 have no properties, see
+     * {@link Chunk.TerrainData#getBlockProperties(int, int, int)}.
+     * Note that this loads the chunk into memory.
+     *
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @param z The z coordinate.
+     * @param dim The dimension number (Nether -1, Overworld 0, End 1).
+     *
+     * @return A new block state without NBT. <code>null</code> if the block has an unknown numerical ID.
+     * */
+    public BlockState getBlockStateAtPos(int x, int y, int z, int dim) {
+        Chunk chunk = getChunkAtPos(x, z, dim);
+
+        String name = chunk.terrainData.getBlockName(x & 15, y, z & 15);
+        if(name == null) return null;
+        return new SimpleBlockState(name, chunk.terrainData.getBlockProperties(x & 15, y, z & 15), null);
+    }
+
+    /**
+     * Gets the numerical block ID at the position in the specified dimension.
+     * Unlike {@link #getBlockAtPos(int, int, int, int)}, no block object is looked up.
+     * Chunks saved since Minecraft 1.13 have no numerical IDs, see {@link Chunk.TerrainData#getBlockId(int, int, int)}.
+     * Note that this loads the chunk into memory.
+     *
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @param z The z coordinate.
+     * @param dim The dimension number (Nether -1, Overworld 0, End 1).
+     *
+     * @return The numerical block ID at the position in the dimension specified.
+     * */
+    public int getBlockIdAtPos(int x, int y, int z, int dim) {
+        Chunk chunk = getChunkAtPos(x, z, dim);
+
+        return chunk.terrainData.getBlockId(x & 15, y, z & 15);
+    }
+
+    /**
+     * Gets the block data value at the position in the specified dimension.
+     * Unlike {@link #getBlockAtPos(int, int, int, int)}, no block object is looked up.
+     * Chunks saved since Minecraft 1.13 have no numerical IDs, see {@link Chunk.TerrainData#getBlockId(int, int, int)}.
+     * Note that this loads the chunk into memory.
+     *
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @param z The z coordinate.
+     * @param dim The dimension number (Nether -1, Overworld 0, End 1).
+     *
+     * @return The block data value at the position in the dimension specified.
+     * */
+    public int getBlockDataAtPos(int x, int y, int z, int dim) {
+        Chunk chunk = getChunkAtPos(x, z, dim);
+
+        return chunk.terrainData.getBlockData(x & 15, y, z & 15);
     }
 
     /**
@@ -291,9 +450,73 @@ public class LevelReader {
     public Chunk.Biome getBiomeAtPos(int x, int z, int dim) {
         Chunk chunk = getChunkAtPos(x, z, dim);
 
-        Vec3I pos = getInChunkPos(x, 0, z);
+        return chunk.biomeMap.getBiomeForColumn(x & 15, z & 15);
+    }
+
+    /**
+     * Gets the height of the column at the position in the overworld, as in, the y coordinate right above
+     * its highest block that blocks light.
+     * Note that this loads the chunk into memory.
+     *
+     * @param x The x coordinate.
+     * @param z The z coordinate.
+     *
+     * @return The height of the column at the position in the overworld.
+     * */
+    public int getHeightAt(int x, int z) {
+        return getHeightAt(x, z, 0);
+    }
+
+    /**
+     * Gets the height of the column at the position in the specified dimension, as in, the y coordinate right above
+     * its highest block that blocks light.
+     * Note that this loads the chunk into memory.
+     *
+     * @param x The x coordinate.
+     * @param z The z coordinate.
+     * @param dim The dimension number (Nether -1, Overworld 0, End 1).
+     *
+     * @return The height of the column at the position in the dimension specified.
+     *
+     * @see Chunk.HeightMap#getHeight(int, int)
+     * */
+    public int getHeightAt(int x, int z, int dim) {
+        Chunk chunk = getChunkAtPos(x, z, dim);
+
+        return chunk.heightMap.getHeight(x & 15, z & 15);
+    }
+
+    /**
+     * Reads the numerical block IDs of the column at the position in the overworld into the given array,
+     * indexed by y coordinate.
+     * Note that this loads the chunk into memory.
+     *
+     * @param x The x coordinate.
+     * @param z The z coordinate.
+     * @param out The array to write the block IDs to. Only the first 256 entries are written.
+     *
+     * @return The given array.
+     * */
+    public int[] getColumn(int x, int z, int[] out) {
+        return getColumn(x, z, out, 0);
+    }
+
+    /**
+     * Reads the numerical block IDs of the column at the position in the specified dimension into the given array,
+     * indexed by y coordinate.
+     * Note that this loads the chunk into memory.
+     *
+     * @param x The x coordinate.
+     * @param z The z coordinate.
+     * @param out The array to write the block IDs to. Only the first 256 entries are written.
+     * @param dim The dimension number (Nether -1, Overworld 0, End 1).
+     *
+     * @return The given array.
+     * */
+    public int[] getColumn(int x, int z, int[] out, int dim) {
+        Chunk chunk = getChunkAtPos(x, z, dim);
 
-        return chunk.biomeMap.getBiomeForColumn(pos.x, pos.z);
+        return chunk.terrainData.getColumn(x & 15, z & 15, out);
     }
 
     /**
@@ -340,10 +563,123 @@ public class LevelReader {
      * @return The chunk at the position in the dimension specified.
      * */
     public Chunk getChunkAtPos(int x, int z, int dim) {
-        int chunkX = (int) Math.floor(x / 16f);
-        int chunkZ = (int) Math.floor(z / 16f);
+        return readChunk(x >> 4, z >> 4, dim);
+    }
+
+    /**
+     * Reads the blocks of a cuboid in the overworld into a structure.
+     *
+     * @param corner1 One corner of the cuboid (inclusive).
+     * @param corner2 The diagonally opposite corner of the cuboid (inclusive).
+     *
+     * @return The structure containing the cuboid's blocks.
+     *
+     * @see #readStructure(Vec3I, Vec3I, int)
+     * */
+    public Structure readStructure(Vec3I corner1, Vec3I corner2) {
+        return readStructure(corner1, corner2, 0);
+    }
+
+    /**
+     * Reads the blocks of a cuboid in the specified dimension into a structure, which can then be
+     * written into the world's <code>structures</code> directory and loaded by a single structure block.
+     * Note that this loads all chunks intersecting the cuboid into memory.
+     *
+     * The structure has the size of the cuboid and is filled with air where there are no other blocks.
+     * Blocks saved since Minecraft 1.13 are exported with their block states. Older blocks are exported by name in
+     * their default block state, since block states can't be derived from numerical data values. Block entities are
+     * exported along with their blocks, entities aren't exported.
+     *
+     * @param corner1 One corner of the cuboid (inclusive).
+     * @param corner2 The diagonally opposite corner of the cuboid (inclusive).
+     * @param dim The dimension number (Nether -1, Overworld 0, End 1).
+     *
+     * @return The structure containing the cuboid's blocks, relative to the cuboid's minimal corner.
+     * */
+    public Structure readStructure(Vec3I corner1, Vec3I corner2, int dim) {
+        Vec3I min = Vec3I.min(corner1, corner2);
+        Vec3I max = Vec3I.max(corner1, corner2);
+        int minY = Math.max(min.y, 0);
+        int maxY = Math.min(max.y, 255);
+
+        Structure structure = new Structure(STRUCTURE_DATA_VERSION, STRUCTURE_AUTHOR, new SimpleBlockState("minecraft:air"));
+        structure.setExplicitSize(max.minus(min).plus(1, 1, 1));
+
+        //The block states by name and properties, shared by all blocks in the same state
+        Map<String, Map<Map<String, String>, BlockState>> blockStates = new HashMap<>();
+        for(int chunkX = min.x >> 4; chunkX <= max.x >> 4; chunkX++) {
+            for(int chunkZ = min.z >> 4; chunkZ <= max.z >> 4; chunkZ++) {
+                Chunk chunk = readChunk(chunkX, chunkZ, dim);
+                if(chunk.dataVersion > structure.getDataVersion()) structure.setDataVersion(chunk.dataVersion);
+
+                int fromX = Math.max(min.x, chunkX << 4);
+                int toX = Math.min(max.x, (chunkX << 4) + 15);
+                int fromZ = Math.max(min.z, chunkZ << 4);
+                int toZ = Math.min(max.z, (chunkZ << 4) + 15);
+
+                Map<Vec3I, Tag.Compound> blockEntities = new HashMap<>();
+                for(Tag.Compound blockEntity : chunk.getTileEntities()) {
+                    Tag.Int x = TagUtils.get(blockEntity, "x", Tag.Int.class);
+                    Tag.Int y = TagUtils.get(blockEntity, "y", Tag.Int.class);
+                    Tag.Int z = TagUtils.get(blockEntity, "z", Tag.Int.class);
+                    if(x == null || y == null || z == null) continue;
+                    //The position is set by the structure block when loading
+                    Tag.Compound nbt = (Tag.Compound) blockEntity.clone("nbt");
+                    nbt.remove("x");
+                    nbt.remove("y");
+                    nbt.remove("z");
+                    blockEntities.put(new Vec3I(x.v, y.v, z.v), nbt);
+                }
+
+                for(int x = fromX; x <= toX; x++) {
+                    for(int z = fromZ; z <= toZ; z++) {
+                        for(int y = minY; y <= maxY; y++) {
+                            if(chunk.terrainData.getBlockId(x & 15, y, z & 15) == 0) continue;
+                            String name = chunk.terrainData.getBlockName(x & 15, y, z & 15);
+                            if(name == null) continue;
+                            Map<String, String> properties = chunk.terrainData.getBlockProperties(x & 15, y, z & 15);
+                            BlockState state = blockStates.computeIfAbsent(name, k -> new HashMap<>())
+                                    .computeIfAbsent(properties, k -> new SimpleBlockState(name, k, null));
+                            Vec3I coordinate = new Vec3I(x - min.x, y - min.y, z - min.z);
+                            Tag.Compound nbt = blockEntities.isEmpty() ? null : blockEntities.get(new Vec3I(x, y, z));
+                            SimpleBlock block = new SimpleBlock(state, coordinate);
+                            if(nbt != null) block.setNbt(nbt);
+                            structure.addBlock(block);
+                        }
+                    }
+                }
+            }
+        }
+        return structure;
+    }
 
-        return readChunk(chunkX, chunkZ, dim);
+    /**
+     * Creates a query for searching or counting the blocks of a cuboid in the overworld.
+     *
+     * @param corner1 One corner of the cuboid (inclusive).
+     * @param corner2 The diagonally opposite corner of the cuboid (inclusive).
+     *
+     * @return The query over the cuboid.
+     *
+     * @see #query(Vec3I, Vec3I, int)
+     * */
+    public BlockQuery query(Vec3I corner1, Vec3I corner2) {
+        return query(corner1, corner2, 0);
+    }
+
+    /**
+     * Creates a query for searching or counting the blocks of a cuboid in the specified dimension, scanning the
+     * cuboid's chunk sections in parallel. Note that this loads all chunks intersecting the cuboid into memory
+     * once the query is run.
+     *
+     * @param corner1 One corner of the cuboid (inclusive).
+     * @param corner2 The diagonally opposite corner of the cuboid (inclusive).
+     * @param dim The dimension number (Nether -1, Overworld 0, End 1).
+     *
+     * @return The query over the cuboid.
+     * */
+    public BlockQuery query(Vec3I corner1, Vec3I corner2, int dim) {
+        return new BlockQuery(this, corner1, corner2, dim);
     }
 
     /**
@@ -385,13 +721,7 @@ public class LevelReader {
      * @return A point containing the position specified in a chunk coordinate space.
      * */
     public static Vec3I getInChunkPos(int x, int y, int z) {
-        double inChunkX = x % 16;
-        double inChunkZ = z % 16;
-
-        if(inChunkX < 0) inChunkX = Math.ceil(inChunkX + 16);
-        if(inChunkZ < 0) inChunkZ = Math.ceil(inChunkZ + 16);
-
-        return new Vec3I((int) inChunkX, y, (int) inChunkZ);
+        return new Vec3I(x & 15, y, z & 15);
     }
 
     /**
@@ -426,14 +756,13 @@ public class LevelReader {
      * Whether {@code this} level reader has been scheduled to clear its chunks but hasn't been
      * cleared yet.
      */
-    private boolean chunkRefreshScheduled = false;
+    private final AtomicBoolean chunkRefreshScheduled = new AtomicBoolean();
 
     private void scheduleChunkRefresh() {
-      if (!chunkRefreshScheduled) {
-        chunkRefreshScheduled = true;
+      if (chunkRefreshScheduled.compareAndSet(false, true)) {
         commonExecutor.schedule(() -> {
+          chunkRefreshScheduled.set(false);
           clearChunkMemory();
-          chunkRefreshScheduled = false;
         }, chunkRefreshDelay, chunkRefreshTimeUnit);
       }
     }
@@ -442,7 +771,11 @@ public class LevelReader {
      * Clears this level reader's chunk memory for chunks to be read from file again.
      */
     public void clearChunkMemory() {
-      LOGGER.debug("Clearing " + chunkMemory.size() + " chunk(s) from memory");
+      int size = 0;
+      for (Map<Long, CompletableFuture<Chunk>> chunksForDim : chunkMemory.values()) {
+        size += chunksForDim.size();
+      }
+      LOGGER.debug("Clearing " + size + " chunk(s) from memory");
       chunkMemory.clear();
     }
 }
@@ -19,4 +19,19 @@ class TagUtils {
     static boolean match(Tag tag, String name, Class<? extends Tag> type) {
         return tag.getName().equals(name) && type.isInstance(tag);
     }
+
+    /**
+     * Gets the child of the given compound that matches the name and tag type specified.
+     *
+     * @param compound The compound to search in. May be <code>null</code>.
+     * @param name The name of the child.
+     * @param type The class of the tag type of the child.
+     *
+     * @return The child, or <code>null</code> if there's no child matching the given info.
+     * */
+    static <T extends Tag> T get(Tag.Compound compound, String name, Class<T> type) {
+        if(compound == null) return null;
+        Tag tag = compound.get(name);
+        return type.isInstance(tag) ? type.cast(tag) : null;
+    }
 }
@@ -48,6 +48,9 @@ public class Block {
      * @return The constant block object representing the given info. <code>null</code> if it doesn't exist.
      * */
     public static Block get(int id, int data) {
+        if(id >= 0 && id <= BlockType.MAX_ID && data >= 0 && data < 16) {
+            return BlockType.BY_STATE[id << 4 | data];
+        }
         BlockType type = BlockType.getBlockForId(id);
         if(type == null) {
             return null;
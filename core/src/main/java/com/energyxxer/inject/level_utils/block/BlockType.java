@@ -275,11 +275,34 @@ public enum BlockType {
     /**
      * An array containing 16 block objects with this block type, with all 16 data values.
      * */
-    private Block[] states = new Block[16];
+    private final Block[] states = new Block[16];
     /**
      * A block object representing this block type, with data value -1.
      * */
-    private Block genericState = null;
+    private final Block genericState = new Block(this);
+
+    /**
+     * The highest numerical block ID.
+     * */
+    static final int MAX_ID = 4095;
+
+    /**
+     * The block types indexed by their numerical ID.
+     * */
+    private static final BlockType[] BY_ID = new BlockType[MAX_ID + 1];
+
+    /**
+     * The block objects of all block types with all 16 data values, indexed by <code>id &lt;&lt; 4 | data</code>.
+     * Kept here rather than in {@link Block}, since block types create their blocks while being constructed.
+     * */
+    static final Block[] BY_STATE = new Block[(MAX_ID + 1) * 16];
+
+    static {
+        for(BlockType type : values()) {
+            BY_ID[type.numericalId] = type;
+            System.arraycopy(type.states, 0, BY_STATE, type.numericalId << 4, type.states.length);
+        }
+    }
 
     /**
      * Creates a block type by the given human-readable name.
@@ -289,9 +312,7 @@ public enum BlockType {
      * @param name This block's human-readable name.
      * */
     BlockType(String name) {
-        this.numericalId = this.ordinal();
-        this.id = name().toLowerCase();
-        this.name = name;
+        this(name, -1);
     }
 
     /**
@@ -303,9 +324,12 @@ public enum BlockType {
      *                block ID order, such as the structure block.
      * */
     BlockType(String name, int forceId) {
-        this.numericalId = forceId;
+        this.numericalId = (forceId >= 0) ? forceId : this.ordinal();
         this.id = name().toLowerCase();
         this.name = name;
+        for(int data = 0; data < states.length; data++) {
+            states[data] = new Block(this, data);
+        }
     }
 
     /**
@@ -316,11 +340,7 @@ public enum BlockType {
      * @return The block object with this block type and data.
      * */
     public Block getByData(int data) {
-        if(data == -1) {
-            if(genericState == null) genericState = new Block(this);
-            return genericState;
-        }
-        if(states[data] == null) states[data] = new Block(this, data);
+        if(data == -1) return genericState;
         return states[data];
     }
 
@@ -332,17 +352,7 @@ public enum BlockType {
      * @return The block type represented by the ID. <code>null</code> if it doesn't exist.
      * */
     public static BlockType getBlockForId(int id) {
-        BlockType[] values = values();
-
-        if(id >= 0 && id < values.length) {
-            BlockType guess = values[id];
-            if(guess.numericalId == id) return guess;
-        }
-
-        for(BlockType blockType : values) {
-            if(blockType.numericalId == id) return blockType;
-        }
-        return null;
+        return (id >= 0 && id <= MAX_ID) ? BY_ID[id] : null;
     }
 
     @Override
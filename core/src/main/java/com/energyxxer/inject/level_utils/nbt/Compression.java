@@ -0,0 +1,295 @@
+package com.energyxxer.inject.level_utils.nbt;
+
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * The compression formats used for NBT data: GZIP for structure and level files, zlib or no compression for the
+ * chunks in region files.
+ *
+ * Each thread reuses its <code>Inflater</code>s and <code>Deflater</code>s rather than creating (and leaving to the
+ * garbage collector) new ones for every chunk or structure.
+ *
+ * @see <a href="http://minecraft.gamepedia.com/Region_file_format">Region file format</a> on the Minecraft Wiki
+ */
+public enum Compression {
+    GZIP(1),
+    ZLIB(2),
+    NONE(3);
+
+    /**
+     * The compression type stored in front of chunks in region files.
+     */
+    public final int id;
+
+    Compression(int id) {
+        this.id = id;
+    }
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final byte[] GZIP_HEADER = {
+            (byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0
+    };
+
+    private static final ThreadLocal<Inflater> ZLIB_INFLATER = ThreadLocal.withInitial(() -> new Inflater(false));
+    private static final ThreadLocal<Inflater> RAW_INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+    private static final ThreadLocal<Deflater> ZLIB_DEFLATER = new ThreadLocal<>();
+    private static final ThreadLocal<Deflater> RAW_DEFLATER = new ThreadLocal<>();
+    /**
+     * The buffer each thread decompresses into, grown as needed.
+     */
+    private static final ThreadLocal<byte[]> OUTPUT = ThreadLocal.withInitial(() -> new byte[64 * 1024]);
+    /**
+     * The largest buffer kept for reuse after decompressing. Larger buffers are only used for the data they were grown
+     * for, so that a single huge chunk or structure doesn't pin its memory to the thread.
+     */
+    private static final int MAX_RETAINED_OUTPUT = 1024 * 1024;
+    /**
+     * The default maximum number of bytes the data may decompress to.
+     */
+    public static final int DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Returns the compression with the given region file compression type.
+     *
+     * @param id The compression type.
+     *
+     * @return The compression, or <code>null</code> if the type is unknown.
+     * */
+    public static Compression fromId(int id) {
+        switch(id) {
+            case 1:
+                return GZIP;
+            case 2:
+                return ZLIB;
+            case 3:
+                return NONE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Decompresses the given data, which may decompress to at most {@link #DEFAULT_MAX_SIZE} bytes.
+     *
+     * @param data The array containing the compressed data.
+     * @param offset The offset of the compressed data in the array.
+     * @param length The length of the compressed data.
+     *
+     * @return A new array containing exactly the decompressed data.
+     *
+     * @throws IOException if the data is malformed, ends prematurely or decompresses to too many bytes.
+     * */
+    public byte[] decompress(byte[] data, int offset, int length) throws IOException {
+        return decompress(data, offset, length, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Decompresses the given data.
+     *
+     * @param data The array containing the compressed data.
+     * @param offset The offset of the compressed data in the array.
+     * @param length The length of the compressed data.
+     * @param maxSize The maximum number of bytes the data may decompress to, which bounds the memory used for
+     *                corrupt or malicious data.
+     *
+     * @return A new array containing exactly the decompressed data.
+     *
+     * @throws IOException if the data is malformed, ends prematurely or decompresses to more than
+     *                     <code>maxSize</code> bytes.
+     * */
+    public byte[] decompress(byte[] data, int offset, int length, int maxSize) throws IOException {
+        if(maxSize < 0 || maxSize == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid maximum size: " + maxSize);
+        }
+        switch(this) {
+            case GZIP: {
+                int end = offset + length;
+                int start = skipGzipHeader(data, offset, end);
+                Inflater inflater = RAW_INFLATER.get();
+                byte[] result = inflate(inflater, data, start, end - start, maxSize);
+                int trailer = end - inflater.getRemaining();
+                if(end - trailer < 8) throw new EOFException("GZIP trailer is missing");
+                CRC32 crc = new CRC32();
+                crc.update(result, 0, result.length);
+                if(readIntLE(data, trailer) != (int) crc.getValue()) throw new ZipException("Corrupt GZIP trailer");
+                return result;
+            }
+            case ZLIB:
+                return inflate(ZLIB_INFLATER.get(), data, offset, length, maxSize);
+            default:
+                if(length > maxSize) throw tooLarge(maxSize);
+                return Arrays.copyOfRange(data, offset, offset + length);
+        }
+    }
+
+    /**
+     * Opens a stream compressing everything written to it into the given stream.
+     * Closing the returned stream closes the given stream.
+     *
+     * @param out The stream to write the compressed data to.
+     * @param level The deflate level from 0 to 9, or <code>Deflater.DEFAULT_COMPRESSION</code>. Low levels such as
+     *              <code>Deflater.BEST_SPEED</code> are preferable for short-lived files. Ignored for <code>NONE</code>.
+     *
+     * @return The compressing stream.
+     *
+     * @throws IOException if writing a header fails.
+     * */
+    public OutputStream compress(OutputStream out, int level) throws IOException {
+        switch(this) {
+            case GZIP:
+                return new PooledDeflaterOutputStream(out, level, RAW_DEFLATER, true);
+            case ZLIB:
+                return new PooledDeflaterOutputStream(out, level, ZLIB_DEFLATER, false);
+            default:
+                return new FilterOutputStream(out) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                    }
+                };
+        }
+    }
+
+    private static byte[] inflate(Inflater inflater, byte[] data, int offset, int length, int maxSize) throws IOException {
+        inflater.reset();
+        inflater.setInput(data, offset, length);
+        byte[] output = OUTPUT.get();
+        int size = 0;
+        try {
+            while(!inflater.finished()) {
+                if(size == output.length) {
+                    //One byte more than allowed is enough to tell that the data is too large
+                    output = Arrays.copyOf(output, (int) Math.min(output.length * 2L, maxSize + 1L));
+                    if(output.length <= MAX_RETAINED_OUTPUT) OUTPUT.set(output);
+                }
+                int inflated = inflater.inflate(output, size, output.length - size);
+                if(inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new EOFException("Compressed data ended unexpectedly");
+                }
+                size += inflated;
+                if(size > maxSize) throw tooLarge(maxSize);
+            }
+        } catch(DataFormatException x) {
+            throw new ZipException(x.getMessage());
+        }
+        return Arrays.copyOf(output, size);
+    }
+
+    private static ZipException tooLarge(int maxSize) {
+        return new ZipException("Data decompresses to more than " + maxSize + " bytes");
+    }
+
+    /**
+     * Skips the GZIP member header at the given offset.
+     *
+     * @return The offset of the deflated data.
+     * */
+    private static int skipGzipHeader(byte[] data, int offset, int end) throws IOException {
+        if(end - offset < GZIP_HEADER.length) throw new EOFException("GZIP header is missing");
+        if(((data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8) != GZIP_MAGIC) throw new ZipException("Not in GZIP format");
+        if(data[offset + 2] != Deflater.DEFLATED) throw new ZipException("Unsupported compression method");
+        int flags = data[offset + 3];
+        int pos = offset + GZIP_HEADER.length;
+        if((flags & FEXTRA) != 0) {
+            if(end - pos < 2) throw new EOFException("GZIP header is truncated");
+            pos += 2 + ((data[pos] & 0xFF) | (data[pos + 1] & 0xFF) << 8);
+        }
+        if((flags & FNAME) != 0) pos = skipZeroTerminated(data, pos, end);
+        if((flags & FCOMMENT) != 0) pos = skipZeroTerminated(data, pos, end);
+        if((flags & FHCRC) != 0) pos += 2;
+        if(pos > end) throw new EOFException("GZIP header is truncated");
+        return pos;
+    }
+
+    private static int skipZeroTerminated(byte[] data, int pos, int end) throws EOFException {
+        while(pos < end) {
+            if(data[pos++] == 0) return pos;
+        }
+        throw new EOFException("GZIP header is truncated");
+    }
+
+    private static int readIntLE(byte[] data, int pos) {
+        return (data[pos] & 0xFF) | (data[pos + 1] & 0xFF) << 8 | (data[pos + 2] & 0xFF) << 16 | (data[pos + 3] & 0xFF) << 24;
+    }
+
+    /**
+     * A zlib or GZIP compressing stream that borrows the <code>Deflater</code> of the current thread and returns it on
+     * {@link #close()} instead of ending it.
+     */
+    private static final class PooledDeflaterOutputStream extends DeflaterOutputStream {
+        private final ThreadLocal<Deflater> pool;
+        private final CRC32 crc;
+        private boolean finished;
+        private boolean released;
+
+        PooledDeflaterOutputStream(OutputStream out, int level, ThreadLocal<Deflater> pool, boolean gzip) throws IOException {
+            super(out, borrow(pool, level, gzip), 8 * 1024);
+            this.pool = pool;
+            this.crc = gzip ? new CRC32() : null;
+            if(gzip) out.write(GZIP_HEADER);
+        }
+
+        private static Deflater borrow(ThreadLocal<Deflater> pool, int level, boolean nowrap) {
+            Deflater deflater = pool.get();
+            if(deflater != null) {
+                pool.set(null);
+                deflater.reset();
+            } else {
+                deflater = new Deflater(level, nowrap);
+            }
+            deflater.setLevel(level);
+            return deflater;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            super.write(b, off, len);
+            if(crc != null) crc.update(b, off, len);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if(finished) return;
+            super.finish();
+            finished = true;
+            if(crc != null) {
+                int size = (int) def.getBytesRead();
+                int checksum = (int) crc.getValue();
+                out.write(new byte[] {
+                        (byte) checksum, (byte) (checksum >> 8), (byte) (checksum >> 16), (byte) (checksum >> 24),
+                        (byte) size, (byte) (size >> 8), (byte) (size >> 16), (byte) (size >> 24)
+                });
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if(!released) {
+                    released = true;
+                    if(pool.get() == null) {
+                        pool.set(def);
+                    } else {
+                        def.end();
+                    }
+                }
+            }
+        }
+    }
+}
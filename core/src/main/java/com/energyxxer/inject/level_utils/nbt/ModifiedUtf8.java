@@ -0,0 +1,102 @@
+package com.energyxxer.inject.level_utils.nbt;
+
+/**
+ * Encodes and decodes strings in the modified UTF-8 format of <code>DataInput.readUTF</code> and
+ * <code>DataOutput.writeUTF</code>, which Minecraft uses for all strings and tag names in NBT data.
+ *
+ * It differs from standard UTF-8 in two ways: the character <code>'\u0000'</code> is encoded as the two bytes
+ * <code>0xC0 0x80</code>, and supplementary characters are encoded as their two surrogates with three bytes each
+ * rather than as one four-byte sequence.
+ */
+final class ModifiedUtf8 {
+    /**
+     * The maximum number of bytes of an encoded string, since the length is stored as an unsigned short.
+     */
+    static final int MAX_LENGTH = 0xFFFF;
+
+    private ModifiedUtf8() {}
+
+    /**
+     * Encodes the given string.
+     *
+     * @param str The string to encode.
+     *
+     * @return The encoded bytes, without a length prefix.
+     *
+     * @throws FormatException if the encoded string is longer than {@link #MAX_LENGTH} bytes.
+     * */
+    static byte[] encode(String str) throws FormatException {
+        int length = str.length();
+        int encodedLength = length;
+        for(int i = 0; i < length; i++) {
+            char c = str.charAt(i);
+            if(c >= 0x800) encodedLength += 2;
+            else if(c >= 0x80 || c == 0) encodedLength++;
+        }
+        if(encodedLength > MAX_LENGTH) {
+            throw new FormatException("String is too long to be encoded: " + encodedLength + " bytes");
+        }
+
+        byte[] bytes = new byte[encodedLength];
+        int pos = 0;
+        for(int i = 0; i < length; i++) {
+            char c = str.charAt(i);
+            if(c >= 0x800) {
+                bytes[pos++] = (byte) (0xE0 | (c >> 12));
+                bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if(c >= 0x80 || c == 0) {
+                bytes[pos++] = (byte) (0xC0 | (c >> 6));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                bytes[pos++] = (byte) c;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Decodes a string from the given bytes.
+     *
+     * @param bytes The array containing the encoded string.
+     * @param offset The index of the first byte of the string.
+     * @param length The number of bytes of the string.
+     *
+     * @return The decoded string.
+     *
+     * @throws FormatException if the bytes aren't valid modified UTF-8.
+     * */
+    static String decode(byte[] bytes, int offset, int length) throws FormatException {
+        char[] chars = new char[length];
+        int count = 0;
+        int end = offset + length;
+        int pos = offset;
+        while(pos < end) {
+            int b = bytes[pos] & 0xFF;
+            if(b < 0x80) {
+                chars[count++] = (char) b;
+                pos++;
+            } else if((b & 0xE0) == 0xC0) {
+                if(pos + 2 > end) throw malformed(pos);
+                int b2 = bytes[pos + 1];
+                if((b2 & 0xC0) != 0x80) throw malformed(pos);
+                chars[count++] = (char) (((b & 0x1F) << 6) | (b2 & 0x3F));
+                pos += 2;
+            } else if((b & 0xF0) == 0xE0) {
+                if(pos + 3 > end) throw malformed(pos);
+                int b2 = bytes[pos + 1];
+                int b3 = bytes[pos + 2];
+                if((b2 & 0xC0) != 0x80 || (b3 & 0xC0) != 0x80) throw malformed(pos);
+                chars[count++] = (char) (((b & 0x0F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F));
+                pos += 3;
+            } else {
+                throw malformed(pos);
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private static FormatException malformed(int pos) {
+        return new FormatException("Malformed modified UTF-8 at byte " + pos);
+    }
+}
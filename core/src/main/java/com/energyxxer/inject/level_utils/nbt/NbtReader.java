@@ -0,0 +1,370 @@
+package com.energyxxer.inject.level_utils.nbt;
+
+import java.io.EOFException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reads uncompressed NBT data directly from a <code>ByteBuffer</code>, such as a wrapped byte array or a
+ * <code>MappedByteBuffer</code>. Primitives are read in big-endian order straight from the buffer, without
+ * any intermediate streams, and unselected tags are skipped by moving the buffer's position.
+ *
+ * Tag names are interned in a small per-thread cache, so the names repeated in every chunk section or entity
+ * (such as "Blocks", "Data" or "Y") are only decoded once.
+ *
+ * Tags can either be read into a {@link Tag} tree or reported to a {@link NbtVisitor} without creating any objects
+ * for them. A reader is not thread-safe, but it's cheap to create one per buffer.
+ */
+public final class NbtReader {
+    /**
+     * The buffer the NBT data is read from.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The name cache of the current thread.
+     */
+    private final NameCache names = NAME_CACHE.get();
+
+    private static final ThreadLocal<NameCache> NAME_CACHE = ThreadLocal.withInitial(NameCache::new);
+
+    /**
+     * Creates a reader for the remaining bytes of the given buffer. The buffer's position is advanced as tags are read,
+     * its byte order is set to big-endian.
+     *
+     * @param buffer The buffer to read from.
+     */
+    public NbtReader(ByteBuffer buffer) {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Creates a reader for the given uncompressed NBT data.
+     *
+     * @param nbt The NBT data to read.
+     */
+    public NbtReader(byte[] nbt) {
+        this(ByteBuffer.wrap(nbt));
+    }
+
+    /**
+     * Reads the next named tag with all of its contents.
+     *
+     * @return The tag.
+     *
+     * @throws FormatException if the data is malformed.
+     * @throws EOFException if the buffer ends within the tag.
+     * */
+    public Tag read() throws FormatException, EOFException {
+        return read(TagSelector.ALL);
+    }
+
+    /**
+     * Reads the next named tag, only decoding the parts of it picked by the given selector.
+     * Everything else is skipped using its length fields.
+     *
+     * @param selector The selector deciding which children of compound tags are read.
+     *
+     * @return The tag.
+     *
+     * @throws FormatException if the data is malformed.
+     * @throws EOFException if the buffer ends within the tag.
+     * */
+    public Tag read(TagSelector selector) throws FormatException, EOFException {
+        TagBuilder builder = new TagBuilder(selector);
+        accept(builder);
+        return builder.getResult();
+    }
+
+    /**
+     * Reads the next named tag, reporting its contents to the given visitor. Tags the visitor doesn't
+     * {@link NbtVisitor#select(String, Tag.Type) select} are skipped using their length fields.
+     *
+     * @param visitor The visitor to report the tag's contents to.
+     *
+     * @throws FormatException if the data is malformed.
+     * @throws EOFException if the buffer ends within the tag.
+     * */
+    public void accept(NbtVisitor visitor) throws FormatException, EOFException {
+        try {
+            Tag.Type type = readType();
+            if(type == Tag.Type.END) return;
+            String name = readName();
+            if(visitor.select(name, type)) {
+                visitPayload(type, name, visitor);
+            } else {
+                skipPayload(type);
+            }
+        } catch(BufferUnderflowException x) {
+            EOFException eof = new EOFException("NBT data ended unexpectedly");
+            eof.initCause(x);
+            throw eof;
+        }
+    }
+
+    private Tag.Type readType() throws FormatException {
+        int id = buffer.get();
+        Tag.Type type = Tag.Type.fromId(id);
+        if(type == null) {
+            throw new FormatException("Unknown tag type: " + id);
+        }
+        return type;
+    }
+
+    private void visitPayload(Tag.Type type, String name, NbtVisitor visitor) throws FormatException {
+        switch(type) {
+            case BYTE:
+                visitor.visitByte(name, buffer.get());
+                return;
+            case SHORT:
+                visitor.visitShort(name, buffer.getShort());
+                return;
+            case INT:
+                visitor.visitInt(name, buffer.getInt());
+                return;
+            case LONG:
+                visitor.visitLong(name, buffer.getLong());
+                return;
+            case FLOAT:
+                visitor.visitFloat(name, buffer.getFloat());
+                return;
+            case DOUBLE:
+                visitor.visitDouble(name, buffer.getDouble());
+                return;
+            case BYTEARRAY: {
+                int size = readSize();
+                require(size);
+                byte[] v = new byte[size];
+                buffer.get(v);
+                visitor.visitByteArray(name, v);
+                return;
+            }
+            case STRING:
+                visitor.visitString(name, readString());
+                return;
+            case LIST: {
+                Tag.Type contained = readType();
+                int size = readSize();
+                if(size > 0 && contained == Tag.Type.END) {
+                    throw new FormatException("List of End tags with size " + size);
+                }
+                int elementSize = elementSize(contained);
+                if(elementSize > 0) require((long) size * elementSize);
+                visitor.visitList(name, contained, size);
+                for(int i = 0; i < size; i++) {
+                    visitPayload(contained, null, visitor);
+                }
+                visitor.visitListEnd();
+                return;
+            }
+            case COMPOUND: {
+                visitor.visitCompound(name);
+                Tag.Type child;
+                while((child = readType()) != Tag.Type.END) {
+                    String n = readName();
+                    if(visitor.select(n, child)) {
+                        visitPayload(child, n, visitor);
+                    } else {
+                        skipPayload(child);
+                    }
+                }
+                visitor.visitCompoundEnd();
+                return;
+            }
+            case INTARRAY: {
+                int size = readSize();
+                require(size * 4L);
+                int[] v = new int[size];
+                buffer.asIntBuffer().get(v);
+                buffer.position(buffer.position() + v.length * 4);
+                visitor.visitIntArray(name, v);
+                return;
+            }
+            case LONGARRAY: {
+                int size = readSize();
+                require(size * 8L);
+                long[] v = new long[size];
+                buffer.asLongBuffer().get(v);
+                buffer.position(buffer.position() + v.length * 8);
+                visitor.visitLongArray(name, v);
+                return;
+            }
+            default:
+                throw new FormatException("Unexpected tag type: " + type);
+        }
+    }
+
+    /**
+     * Skips the payload of a tag whose type and name have already been read.
+     *
+     * @param type The type of the tag.
+     *
+     * @throws FormatException if the data is malformed.
+     * */
+    private void skipPayload(Tag.Type type) throws FormatException {
+        switch(type) {
+            case END:
+                return;
+            case BYTE:
+                skip(1);
+                return;
+            case SHORT:
+                skip(2);
+                return;
+            case INT:
+            case FLOAT:
+                skip(4);
+                return;
+            case LONG:
+            case DOUBLE:
+                skip(8);
+                return;
+            case BYTEARRAY:
+                skip(readSize());
+                return;
+            case STRING:
+                skip(buffer.getShort() & 0xFFFF);
+                return;
+            case INTARRAY:
+                skip(readSize() * 4L);
+                return;
+            case LONGARRAY:
+                skip(readSize() * 8L);
+                return;
+            case LIST: {
+                Tag.Type contained = readType();
+                int size = readSize();
+                int elementSize = elementSize(contained);
+                if(elementSize > 0) {
+                    skip((long) size * elementSize);
+                } else {
+                    for(int i = 0; i < size; i++) {
+                        skipPayload(contained);
+                    }
+                }
+                return;
+            }
+            case COMPOUND: {
+                Tag.Type child;
+                while((child = readType()) != Tag.Type.END) {
+                    skip(buffer.getShort() & 0xFFFF);
+                    skipPayload(child);
+                }
+                return;
+            }
+            default:
+                throw new FormatException("Unexpected tag type: " + type);
+        }
+    }
+
+    /**
+     * Returns the size of the payload of tags of the given type, if it's fixed.
+     *
+     * @param type The type of the tags.
+     *
+     * @return The size of the payload in bytes, or <code>-1</code> if it depends on the tag.
+     * */
+    private static int elementSize(Tag.Type type) {
+        switch(type) {
+            case BYTE:
+                return 1;
+            case SHORT:
+                return 2;
+            case INT:
+            case FLOAT:
+                return 4;
+            case LONG:
+            case DOUBLE:
+                return 8;
+            default:
+                return -1;
+        }
+    }
+
+    private int readSize() throws FormatException {
+        int size = buffer.getInt();
+        if(size < 0) {
+            throw new FormatException("Size was negative: " + size);
+        }
+        return size;
+    }
+
+    private void require(long n) {
+        if(n > buffer.remaining()) throw new BufferUnderflowException();
+    }
+
+    private void skip(long n) {
+        require(n);
+        buffer.position(buffer.position() + (int) n);
+    }
+
+    private String readName() throws FormatException {
+        int length = buffer.getShort() & 0xFFFF;
+        require(length);
+        return names.get(buffer, length);
+    }
+
+    private String readString() throws FormatException {
+        int length = buffer.getShort() & 0xFFFF;
+        require(length);
+        String s;
+        if(buffer.hasArray()) {
+            s = ModifiedUtf8.decode(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            s = ModifiedUtf8.decode(bytes, 0, length);
+        }
+        return s;
+    }
+
+    /**
+     * A fixed-size cache mapping the encoded bytes of tag names to their decoded strings.
+     * Colliding entries simply replace each other.
+     */
+    private static final class NameCache {
+        private static final int SIZE = 512;
+        /**
+         * The maximum length of a name to be cached. Longer names are decoded every time.
+         */
+        private static final int MAX_LENGTH = 64;
+
+        private final byte[][] keys = new byte[SIZE][];
+        private final String[] values = new String[SIZE];
+
+        String get(ByteBuffer buffer, int length) throws FormatException {
+            int start = buffer.position();
+            if(length > MAX_LENGTH) {
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                return ModifiedUtf8.decode(bytes, 0, length);
+            }
+            int hash = length;
+            for(int i = 0; i < length; i++) {
+                hash = 31 * hash + buffer.get(start + i);
+            }
+            int slot = (hash ^ (hash >>> 16)) & (SIZE - 1);
+
+            byte[] key = keys[slot];
+            if(key != null && key.length == length && matches(buffer, start, key)) {
+                buffer.position(start + length);
+                return values[slot];
+            }
+            key = new byte[length];
+            buffer.get(key);
+            String value = ModifiedUtf8.decode(key, 0, length).intern();
+            keys[slot] = key;
+            values[slot] = value;
+            return value;
+        }
+
+        private static boolean matches(ByteBuffer buffer, int start, byte[] key) {
+            for(int i = 0; i < key.length; i++) {
+                if(buffer.get(start + i) != key[i]) return false;
+            }
+            return true;
+        }
+    }
+}
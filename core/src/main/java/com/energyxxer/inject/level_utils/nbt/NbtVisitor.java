@@ -0,0 +1,133 @@
+package com.energyxxer.inject.level_utils.nbt;
+
+/**
+ * Receives the contents of NBT data as a sequence of events, as produced by {@link NbtReader#accept(NbtVisitor)}.
+ * Unlike deserializing into a {@link Tag} tree, no objects are created for data the visitor isn't interested in,
+ * so whole regions of chunks can be scanned in constant memory.
+ *
+ * Before a named tag (the root tag or a child of a TAG_Compound) is read, {@link #select(String, Tag.Type)} is
+ * called. If it returns <code>false</code>, the tag is skipped using its length fields and no events are produced
+ * for it or any of its contents. Tags inside a TAG_List have no name and are always visited with a <code>null</code>
+ * name once the list itself has been selected.
+ *
+ * Every method has an empty default implementation, so visitors only need to implement the events they use.
+ */
+public interface NbtVisitor {
+    /**
+     * Decides whether the named tag of the given type should be visited.
+     *
+     * @param name The name of the tag.
+     * @param type The type of the tag.
+     *
+     * @return <code>true</code> if the tag should be visited, <code>false</code> if it should be skipped.
+     */
+    default boolean select(String name, Tag.Type type) {
+        return true;
+    }
+
+    /**
+     * Called when a TAG_Compound begins. Its children follow, terminated by {@link #visitCompoundEnd()}.
+     *
+     * @param name The name of the compound, or <code>null</code> if it's an element of a list.
+     */
+    default void visitCompound(String name) {}
+
+    /**
+     * Called when the most recently begun TAG_Compound ends.
+     */
+    default void visitCompoundEnd() {}
+
+    /**
+     * Called when a TAG_List begins. Its elements follow, terminated by {@link #visitListEnd()}.
+     *
+     * @param name The name of the list, or <code>null</code> if it's an element of another list.
+     * @param containedType The type of the list's elements.
+     * @param size The number of elements in the list.
+     */
+    default void visitList(String name, Tag.Type containedType, int size) {}
+
+    /**
+     * Called when the most recently begun TAG_List ends.
+     */
+    default void visitListEnd() {}
+
+    /**
+     * Called for a TAG_Byte.
+     *
+     * @param name The name of the tag, or <code>null</code> if it's an element of a list.
+     * @param v The value of the tag.
+     */
+    default void visitByte(String name, byte v) {}
+
+    /**
+     * Called for a TAG_Short.
+     *
+     * @param name The name of the tag, or <code>null</code> if it's an element of a list.
+     * @param v The value of the tag.
+     */
+    default void visitShort(String name, short v) {}
+
+    /**
+     * Called for a TAG_Int.
+     *
+     * @param name The name of the tag, or <code>null</code> if it's an element of a list.
+     * @param v The value of the tag.
+     */
+    default void visitInt(String name, int v) {}
+
+    /**
+     * Called for a TAG_Long.
+     *
+     * @param name The name of the tag, or <code>null</code> if it's an element of a list.
+     * @param v The value of the tag.
+     */
+    default void visitLong(String name, long v) {}
+
+    /**
+     * Called for a TAG_Float.
+     *
+     * @param name The name of the tag, or <code>null</code> if it's an element of a list.
+     * @param v The value of the tag.
+     */
+    default void visitFloat(String name, float v) {}
+
+    /**
+     * Called for a TAG_Double.
+     *
+     * @param name The name of the tag, or <code>null</code> if it's an element of a list.
+     * @param v The value of the tag.
+     */
+    default void visitDouble(String name, double v) {}
+
+    /**
+     * Called for a TAG_String.
+     *
+     * @param name The name of the tag, or <code>null</code> if it's an element of a list.
+     * @param v The value of the tag.
+     */
+    default void visitString(String name, String v) {}
+
+    /**
+     * Called for a TAG_Byte_Array. The array is newly allocated and may be kept by the visitor.
+     *
+     * @param name The name of the tag, or <code>null</code> if it's an element of a list.
+     * @param v The contents of the tag.
+     */
+    default void visitByteArray(String name, byte[] v) {}
+
+    /**
+     * Called for a TAG_Int_Array. The array is newly allocated and may be kept by the visitor.
+     *
+     * @param name The name of the tag, or <code>null</code> if it's an element of a list.
+     * @param v The contents of the tag.
+     */
+    default void visitIntArray(String name, int[] v) {}
+
+    /**
+     * Called for a TAG_Long_Array. The array is newly allocated and may be kept by the visitor.
+     *
+     * @param name The name of the tag, or <code>null</code> if it's an element of a list.
+     * @param v The contents of the tag.
+     */
+    default void visitLongArray(String name, long[] v) {}
+}
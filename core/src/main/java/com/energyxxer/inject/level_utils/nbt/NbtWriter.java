@@ -0,0 +1,272 @@
+package com.energyxxer.inject.level_utils.nbt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Serializes tags into a growable <code>ByteBuffer</code> and writes it to an <code>OutputStream</code> in large
+ * blocks, instead of writing every primitive to the stream separately. This keeps the number of calls into
+ * compressing or file streams low.
+ *
+ * The buffer and a small cache of encoded tag names are reused by every writer created on the same thread.
+ * A writer is not thread-safe and must be {@link #close() closed} to write the remaining data and release its buffer.
+ */
+public final class NbtWriter implements AutoCloseable {
+    /**
+     * The number of buffered bytes after which the buffer is written to the stream.
+     */
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+    /**
+     * The largest buffer kept for reuse after a writer is closed.
+     */
+    private static final int MAX_RETAINED_CAPACITY = 4 * FLUSH_THRESHOLD;
+
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<>();
+
+    /**
+     * The stream to write to.
+     */
+    private final OutputStream out;
+    /**
+     * The buffer and name cache used by this writer. Taken from the current thread while this writer is open, so that
+     * nested writers don't share it.
+     */
+    private Scratch scratch;
+    private ByteBuffer buffer;
+
+    /**
+     * Creates a writer for the given stream. The stream isn't closed by the writer.
+     *
+     * @param out The stream to write to.
+     */
+    public NbtWriter(OutputStream out) {
+        this.out = out;
+        Scratch s = SCRATCH.get();
+        if(s != null) {
+            SCRATCH.set(null);
+        } else {
+            s = new Scratch();
+        }
+        this.scratch = s;
+        this.buffer = s.buffer;
+        this.buffer.clear();
+    }
+
+    /**
+     * Serializes the given tag along with its type and name.
+     *
+     * @param tag The tag to serialize.
+     *
+     * @return This writer.
+     *
+     * @throws IOException if writing to the stream fails.
+     * */
+    public NbtWriter write(Tag tag) throws IOException {
+        ensureOpen();
+        writeNamed(tag);
+        if(buffer.position() >= FLUSH_THRESHOLD) drain();
+        return this;
+    }
+
+    /**
+     * Writes all buffered data to the stream and flushes it.
+     *
+     * @throws IOException if writing to the stream fails.
+     * */
+    public void flush() throws IOException {
+        ensureOpen();
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Writes all buffered data to the stream and returns the buffer to the current thread for reuse.
+     * The stream itself stays open.
+     *
+     * @throws IOException if writing to the stream fails.
+     * */
+    @Override
+    public void close() throws IOException {
+        if(scratch == null) return;
+        try {
+            drain();
+        } finally {
+            //Don't keep buffers grown by exceptionally large tags around
+            scratch.buffer = (buffer.capacity() <= MAX_RETAINED_CAPACITY) ? buffer : ByteBuffer.allocate(INITIAL_CAPACITY);
+            SCRATCH.set(scratch);
+            scratch = null;
+            buffer = null;
+        }
+    }
+
+    private void ensureOpen() {
+        if(scratch == null) throw new IllegalStateException("NbtWriter is closed");
+    }
+
+    private void drain() throws IOException {
+        if(buffer.position() > 0) {
+            out.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+            buffer.clear();
+        }
+    }
+
+    private void writeNamed(Tag tag) throws IOException {
+        ensureCapacity(1);
+        buffer.put((byte) tag.getType().ordinal());
+        if(tag.getType() == Tag.Type.END) return;
+        String name = tag.getName();
+        writeName(name != null ? name : "");
+        writePayload(tag);
+    }
+
+    private void writePayload(Tag tag) throws IOException {
+        switch(tag.getType()) {
+            case END:
+                return;
+            case BYTE:
+                ensureCapacity(1);
+                buffer.put(((Tag.Byte) tag).v);
+                return;
+            case SHORT:
+                ensureCapacity(2);
+                buffer.putShort(((Tag.Short) tag).v);
+                return;
+            case INT:
+                ensureCapacity(4);
+                buffer.putInt(((Tag.Int) tag).v);
+                return;
+            case LONG:
+                ensureCapacity(8);
+                buffer.putLong(((Tag.Long) tag).v);
+                return;
+            case FLOAT:
+                ensureCapacity(4);
+                buffer.putFloat(((Tag.Float) tag).v);
+                return;
+            case DOUBLE:
+                ensureCapacity(8);
+                buffer.putDouble(((Tag.Double) tag).v);
+                return;
+            case BYTEARRAY: {
+                byte[] v = ((Tag.ByteArray) tag).v;
+                ensureCapacity(4);
+                buffer.putInt(v.length);
+                if(v.length >= FLUSH_THRESHOLD) {
+                    //Large arrays are written as they are rather than copied into the buffer
+                    drain();
+                    out.write(v);
+                } else {
+                    ensureCapacity(v.length);
+                    buffer.put(v);
+                }
+                return;
+            }
+            case STRING: {
+                byte[] v = ModifiedUtf8.encode(((Tag.String) tag).v);
+                ensureCapacity(2 + v.length);
+                buffer.putShort((short) v.length);
+                buffer.put(v);
+                return;
+            }
+            case LIST: {
+                if(tag instanceof Tag.ListOfDouble) {
+                    Tag.ListOfDouble l = (Tag.ListOfDouble) tag;
+                    ensureCapacity(5 + l.size * 8);
+                    buffer.put((byte) Tag.Type.DOUBLE.ordinal());
+                    buffer.putInt(l.size);
+                    buffer.asDoubleBuffer().put(l.v, 0, l.size);
+                    buffer.position(buffer.position() + l.size * 8);
+                    return;
+                }
+                if(tag instanceof Tag.ListOfInt) {
+                    Tag.ListOfInt l = (Tag.ListOfInt) tag;
+                    ensureCapacity(5 + l.size * 4);
+                    buffer.put((byte) Tag.Type.INT.ordinal());
+                    buffer.putInt(l.size);
+                    buffer.asIntBuffer().put(l.v, 0, l.size);
+                    buffer.position(buffer.position() + l.size * 4);
+                    return;
+                }
+                Tag.List list = (Tag.List) tag;
+                ensureCapacity(5);
+                buffer.put((byte) list.getContainedType().ordinal());
+                buffer.putInt(list.getSize());
+                for(Tag element : list) {
+                    writePayload(element);
+                }
+                return;
+            }
+            case COMPOUND: {
+                for(Tag child : (Tag.Compound) tag) {
+                    writeNamed(child);
+                    if(buffer.position() >= FLUSH_THRESHOLD) drain();
+                }
+                ensureCapacity(1);
+                buffer.put((byte) Tag.Type.END.ordinal());
+                return;
+            }
+            case INTARRAY: {
+                int[] v = ((Tag.IntArray) tag).v;
+                ensureCapacity(4 + v.length * 4);
+                buffer.putInt(v.length);
+                buffer.asIntBuffer().put(v);
+                buffer.position(buffer.position() + v.length * 4);
+                return;
+            }
+            case LONGARRAY: {
+                long[] v = ((Tag.LongArray) tag).v;
+                ensureCapacity(4 + v.length * 8);
+                buffer.putInt(v.length);
+                buffer.asLongBuffer().put(v);
+                buffer.position(buffer.position() + v.length * 8);
+                return;
+            }
+            default:
+                throw new FormatException("Unexpected tag type: " + tag.getType(), tag);
+        }
+    }
+
+    private void writeName(String name) throws FormatException {
+        byte[] encoded = scratch.encode(name);
+        ensureCapacity(2 + encoded.length);
+        buffer.putShort((short) encoded.length);
+        buffer.put(encoded);
+    }
+
+    private void ensureCapacity(int n) {
+        if(buffer.remaining() < n) {
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + n);
+            ByteBuffer grown = ByteBuffer.allocate(capacity);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+
+    /**
+     * The state reused by the writers of a thread: the buffer and a fixed-size cache of encoded tag names, in which
+     * colliding entries simply replace each other.
+     */
+    private static final class Scratch {
+        private static final int NAME_CACHE_SIZE = 256;
+
+        private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+        private final String[] names = new String[NAME_CACHE_SIZE];
+        private final byte[][] encoded = new byte[NAME_CACHE_SIZE][];
+
+        byte[] encode(String name) throws FormatException {
+            int hash = name.hashCode();
+            int slot = (hash ^ (hash >>> 16)) & (NAME_CACHE_SIZE - 1);
+            String cached = names[slot];
+            if(cached != null && (cached == name || cached.equals(name))) {
+                return encoded[slot];
+            }
+            byte[] bytes = ModifiedUtf8.encode(name);
+            names[slot] = name;
+            encoded[slot] = bytes;
+            return bytes;
+        }
+    }
+}
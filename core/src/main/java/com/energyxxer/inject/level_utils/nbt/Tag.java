@@ -1,18 +1,15 @@
 package com.energyxxer.inject.level_utils.nbt;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
-
-import java.lang.reflect.InvocationTargetException;
+import java.util.RandomAccess;
 
 /**
  * The main class used by this NBT package, its static subclasses extend and implement it. The equals() and hashCode() methods are based entirely on the name of the tag.
@@ -52,49 +49,46 @@ public abstract class Tag implements Cloneable {
         name = _name;
     }
 
+    /**
+     * Deserializes a tag from the given stream using a {@link NbtReader}. The stream is read to its end.
+     *
+     * @param is The <code>InputStream</code> to deserialize from.
+     * @return The deserialized tag.
+     * @throws IOException if the input operation generates an exception, or the data is malformed.
+     */
     public static Tag deserialize(InputStream is) throws IOException {
-        DataInputStream dis = new DataInputStream(is);
-        final Type type = Type.fromId(dis.readByte());
-        if (type == Type.END) {
-            return new End();
-        }
-        final java.lang.String name = readString(dis);
-        switch (type) {
-            case BYTE:
-                return new Byte(name, is);
-            case SHORT:
-                return new Short(name, is);
-            case INT:
-                return new Int(name, is);
-            case LONG:
-                return new Long(name, is);
-            case FLOAT:
-                return new Float(name, is);
-            case DOUBLE:
-                return new Double(name, is);
-            case BYTEARRAY:
-                return new ByteArray(name, is);
-            case STRING:
-                return new String(name, is);
-            case LIST:
-                return new List(name, is);
-            case COMPOUND:
-                return new Compound(name, is);
-            case INTARRAY:
-                return new IntArray(name, is);
-            default:
-                throw new IllegalStateException();
-        }
+        return deserialize(is, TagSelector.ALL);
     }
 
-    private static java.lang.String readString(DataInputStream dis) throws IOException {
-        short length = dis.readShort();
-        if (length < 0) {
-            throw new FormatException("String length was negative: " + length);
-        }
-        byte[] str = new byte[length];
-        dis.readFully(str);
-        return new java.lang.String(str, UTF8);
+    /**
+     * Deserializes a tag from the given stream using a {@link NbtReader}, only decoding the parts of it picked by the
+     * given selector. The stream is read to its end.
+     *
+     * @param is The <code>InputStream</code> to deserialize from.
+     * @param selector The selector deciding which children of compound tags are read.
+     * @return The deserialized tag.
+     * @throws IOException if the input operation generates an exception, or the data is malformed.
+     */
+    public static Tag deserialize(InputStream is, TagSelector selector) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8 * 1024];
+        int read;
+        while ((read = is.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return new NbtReader(bytes.toByteArray()).read(selector);
+    }
+
+    /**
+     * Deserializes a tag from the remaining bytes of the given buffer using a {@link NbtReader}.
+     *
+     * @param buffer The buffer containing uncompressed NBT data.
+     * @param selector The selector deciding which children of compound tags are read.
+     * @return The deserialized tag.
+     * @throws IOException if the data is malformed or ends prematurely.
+     */
+    public static Tag deserialize(java.nio.ByteBuffer buffer, TagSelector selector) throws IOException {
+        return new NbtReader(buffer).read(selector);
     }
 
     /**
@@ -114,34 +108,15 @@ public abstract class Tag implements Cloneable {
     public abstract Type getType();
 
     /**
-     * The main serialization function. Serializes raw, uncompressed NBT data by polymorphically calling a payload serialization function.
+     * The main serialization function. Serializes raw, uncompressed NBT data through a {@link NbtWriter}, which
+     * buffers the data and writes it to the stream in large blocks.
      *
      * @param os The <code>OutputStream</code> to serialize to.
      * @throws IOException if the output operation generates an exception.
      */
     public final void serialize(OutputStream os) throws IOException {
-        preSerialize(os);
-        serializePayload(os);
-    }
-
-    /**
-     * The polymorphic method used to serialize only the tag's payload.
-     *
-     * @param os The <code>OutputStream</code> to serialize to.
-     * @throws IOException if the output operation generates an exception.
-     */
-    protected abstract void serializePayload(OutputStream os) throws IOException;
-
-    /**
-     * The method used to serialize the type and name of a tag.
-     *
-     * @param os The <code>OutputStream</code> to serialize to.
-     * @throws IOException if the output operation generates an exception.
-     */
-    private void preSerialize(OutputStream os) throws IOException {
-        os.write((byte) getType().ordinal());
-        if (name != null) {
-            new String(null, name).serializePayload(os);
+        try (NbtWriter writer = new NbtWriter(os)) {
+            writer.write(this);
         }
     }
 
@@ -251,7 +226,8 @@ public abstract class Tag implements Cloneable {
         STRING,
         LIST,
         COMPOUND,
-        INTARRAY;
+        INTARRAY,
+        LONGARRAY;
 
         /**
          * Converts an integer ordinal to a tag type.
@@ -286,6 +262,8 @@ public abstract class Tag implements Cloneable {
                     return COMPOUND;
                 case 11:
                     return INTARRAY;
+                case 12:
+                    return LONGARRAY;
                 default:
                     return null;
             }
@@ -322,6 +300,8 @@ public abstract class Tag implements Cloneable {
                     return Compound.class;
                 case INTARRAY:
                     return IntArray.class;
+                case LONGARRAY:
+                    return LongArray.class;
                 default:
                     throw new IllegalStateException();
             }
@@ -339,6 +319,8 @@ public abstract class Tag implements Cloneable {
                     return "Byte Array";
                 case INTARRAY:
                     return "Int Array";
+                case LONGARRAY:
+                    return "Long Array";
                 default:
                     return getImplementingClass().getSimpleName();
             }
@@ -366,16 +348,6 @@ public abstract class Tag implements Cloneable {
             return Type.END;
         }
 
-        /**
-         * Does nothing, but prevents this class from being abstract.
-         *
-         * @param o The <code>OutputStream</code> to serialize to.
-         * @throws IOException when pigs fly.
-         */
-        @Override
-        protected void serializePayload(OutputStream o) throws IOException {
-        }
-
         /**
          * Returns "End".
          *
@@ -417,19 +389,6 @@ public abstract class Tag implements Cloneable {
             v = b;
         }
 
-        /**
-         * The DeserializePayload constructor.
-         *
-         * @param name The name of this byte.
-         * @param i    The <code>InputStream</code> to deserialize the byte from.
-         * @throws IOException     if the input operation generates an exception.
-         * @throws FormatException when pigs fly.
-         */
-        public Byte(java.lang.String name, InputStream i) throws IOException, FormatException //DeserializePayload
-        {
-            this(name, (byte) i.read());
-        }
-
         /**
          * Returns the tag type corresponding to TAG_Byte.
          *
@@ -440,17 +399,6 @@ public abstract class Tag implements Cloneable {
             return Type.BYTE;
         }
 
-        /**
-         * Serializes the byte to the <code>OutputStream</code>.
-         *
-         * @param o The <code>OutputStream</code> to serialize the byte to.
-         * @throws IOException if the output operation generates an exception.
-         */
-        @Override
-        protected void serializePayload(OutputStream o) throws IOException {
-            o.write(v);
-        }
-
         /**
          * Gives a textual representation of this byte in base-10.
          *
@@ -482,19 +430,6 @@ public abstract class Tag implements Cloneable {
             v = s;
         }
 
-        /**
-         * The DeserializePayload constructor.
-         *
-         * @param name The name of this short.
-         * @param i    The <code>InputStream</code> to deserialize the short from.
-         * @throws IOException     if the input operation generates an exception.
-         * @throws FormatException when pigs fly.
-         */
-        public Short(java.lang.String name, InputStream i) throws IOException, FormatException //DeserializePayload
-        {
-            this(name, new DataInputStream(i).readShort());
-        }
-
         /**
          * returns the tag type corresponding to TAG_Short.
          *
@@ -505,17 +440,6 @@ public abstract class Tag implements Cloneable {
             return Type.SHORT;
         }
 
-        /**
-         * Serializes the short to the <code>OutputStream</code>.
-         *
-         * @param o The <code>OutputStream</code> to serialize the short to.
-         * @throws IOException if the output operation generates an exception.
-         */
-        @Override
-        protected void serializePayload(OutputStream o) throws IOException {
-            new DataOutputStream(o).writeShort(v);
-        }
-
         /**
          * Gives a textual representation of this short in base-10.
          *
@@ -547,19 +471,6 @@ public abstract class Tag implements Cloneable {
             v = i;
         }
 
-        /**
-         * The DeserializePayload constructor.
-         *
-         * @param name The name of this integer.
-         * @param i    The <code>InputStream</code> to deserialize the integer from.
-         * @throws IOException     if the input operation generates an exception.
-         * @throws FormatException when pigs fly.
-         */
-        public Int(java.lang.String name, InputStream i) throws IOException, FormatException //DeserializePayload
-        {
-            this(name, new DataInputStream(i).readInt());
-        }
-
         /**
          * Returns the tag type corresponding to TAG_Int.
          *
@@ -570,17 +481,6 @@ public abstract class Tag implements Cloneable {
             return Type.INT;
         }
 
-        /**
-         * Serializes the integer to the <code>OutputStream</code>.
-         *
-         * @param o The <code>OutputStream</code> to serialize the integer to.
-         * @throws IOException if the output operation generates an exception.
-         */
-        @Override
-        protected void serializePayload(OutputStream o) throws IOException {
-            new DataOutputStream(o).writeInt(v);
-        }
-
         /**
          * Gives a textual representation of this integer in base-10.
          *
@@ -612,19 +512,6 @@ public abstract class Tag implements Cloneable {
             v = l;
         }
 
-        /**
-         * The DeserializePayload constructor.
-         *
-         * @param name The name of this long.
-         * @param i    The <code>InputStream</code> to deserialize the long from.
-         * @throws IOException     if the input operation generates an exception.
-         * @throws FormatException when pigs fly.
-         */
-        public Long(java.lang.String name, InputStream i) throws IOException, FormatException //DeserializePayload
-        {
-            this(name, new DataInputStream(i).readLong());
-        }
-
         /**
          * Returns the tag type corresponding to TAG_Long.
          *
@@ -635,17 +522,6 @@ public abstract class Tag implements Cloneable {
             return Type.LONG;
         }
 
-        /**
-         * Serializes the long to the <code>OutputStream</code>.
-         *
-         * @param o The <code>OutputStream</code> to serialize the long to.
-         * @throws IOException if the output operation generates an exception.
-         */
-        @Override
-        protected void serializePayload(OutputStream o) throws IOException {
-            new DataOutputStream(o).writeLong(v);
-        }
-
         /**
          * Gives a textual representation of this long in base-10.
          *
@@ -677,19 +553,6 @@ public abstract class Tag implements Cloneable {
             v = f;
         }
 
-        /**
-         * The DeserializePayload constructor.
-         *
-         * @param name The name of this float.
-         * @param i    The <code>InputStream</code> to deserialize the float from.
-         * @throws IOException     if the input operation generates an exception.
-         * @throws FormatException when pigs fly.
-         */
-        public Float(java.lang.String name, InputStream i) throws IOException, FormatException //DeserializePayload
-        {
-            this(name, new DataInputStream(i).readFloat());
-        }
-
         /**
          * Returns the tag type corresponding to TAG_Float.
          *
@@ -700,17 +563,6 @@ public abstract class Tag implements Cloneable {
             return Type.FLOAT;
         }
 
-        /**
-         * Serializes this float to the <code>OutputStream</code>
-         *
-         * @param o The <code>OutputStream</code> to serialize this long to.
-         * @throws IOException if the output operation generates an exception.
-         */
-        @Override
-        protected void serializePayload(OutputStream o) throws IOException {
-            new DataOutputStream(o).writeFloat(v);
-        }
-
         /**
          * Gives a textual representation of this float in base-10.
          *
@@ -742,19 +594,6 @@ public abstract class Tag implements Cloneable {
             v = d;
         }
 
-        /**
-         * The DeserializePayload constructor.
-         *
-         * @param name The name of this double.
-         * @param i    The <code>InputStream</code> to deserialize the double from.
-         * @throws IOException     if the input operation generates an exception.
-         * @throws FormatException when pigs fly.
-         */
-        public Double(java.lang.String name, InputStream i) throws IOException, FormatException //DeserializePayload
-        {
-            this(name, new DataInputStream(i).readDouble());
-        }
-
         /**
          * Returns the tag type corresponding to TAG_Double.
          *
@@ -765,17 +604,6 @@ public abstract class Tag implements Cloneable {
             return Type.DOUBLE;
         }
 
-        /**
-         * Serializes the double to the <code>OutputStream</code>.
-         *
-         * @param o The <code>OutputStream</code> to serialize this double to.
-         * @throws IOException if the output operation generates an exception.
-         */
-        @Override
-        protected void serializePayload(OutputStream o) throws IOException {
-            new DataOutputStream(o).writeDouble(v);
-        }
-
         /**
          * Gives a textual representation of this double in base-10.
          *
@@ -807,26 +635,6 @@ public abstract class Tag implements Cloneable {
             v = b;
         }
 
-        /**
-         * The DeserializePayload constructor.
-         *
-         * @param name The name of this byte array.
-         * @param i    The <code>InputStream</code> to deserialize the byte array from.
-         * @throws IOException     if the input operation generates an exception.
-         * @throws FormatException if the byte array size is negative.
-         */
-        public ByteArray(java.lang.String name, InputStream i) throws IOException, FormatException //DeserializePayload
-        {
-            this(name, (byte[]) null);
-            DataInputStream dis = new DataInputStream(i);
-            int size = dis.readInt();
-            if (size < 0) {
-                throw new FormatException("Byte Array size was negative: " + size);
-            }
-            v = new byte[size];
-            dis.readFully(v);
-        }
-
         /**
          * Returns the tag type that corresponds to TAG_Byte_Array.
          *
@@ -837,19 +645,6 @@ public abstract class Tag implements Cloneable {
             return Type.BYTEARRAY;
         }
 
-        /**
-         * Serializes the byte array to the <code>OutputStream</code>.
-         *
-         * @param o The <code>OutputStream</code> to serialize this byte array to.
-         * @throws IOException if the output operation generates an exception.
-         */
-        @Override
-        protected void serializePayload(OutputStream o) throws IOException {
-            DataOutputStream dos = new DataOutputStream(o);
-            dos.writeInt(v.length);
-            dos.write(v);
-        }
-
         /**
          * Gives a textual representation of this byte array with each byte in base-10.
          *
@@ -902,19 +697,6 @@ public abstract class Tag implements Cloneable {
             v = s;
         }
 
-        /**
-         * The DeserializePayload constructor.
-         *
-         * @param name The name of this string.
-         * @param i    The <code>InputStream</code> to deserialize this string from.
-         * @throws IOException     if the input operation generates an exception.
-         * @throws FormatException if the string length is negative.
-         */
-        public String(java.lang.String name, InputStream i) throws IOException, FormatException //DeserializePayload
-        {
-            this(name, readString(new DataInputStream(i)));
-        }
-
         /**
          * Returns the tag type that corresponds to TAG_String.
          *
@@ -925,19 +707,6 @@ public abstract class Tag implements Cloneable {
             return Type.STRING;
         }
 
-        /**
-         * Serializes this string to the <code>OutputStream</code>.
-         *
-         * @param o The <code>OutputStream</code> to serialize this string to.
-         * @throws IOException if the output operation generates an exception.
-         */
-        @Override
-        protected void serializePayload(OutputStream o) throws IOException {
-            byte[] sarr = v.getBytes(UTF8);
-            new DataOutputStream(o).writeShort((short) sarr.length);
-            o.write(sarr);
-        }
-
         /**
          * Gives a textual representation of this string.
          *
@@ -952,7 +721,7 @@ public abstract class Tag implements Cloneable {
     /**
      * TAG_List
      */
-    public static final class List extends Tag implements Iterable<Tag> {
+    public static class List extends Tag implements Iterable<Tag> {
         /**
          * The tag type this tags supports.
          */
@@ -990,29 +759,16 @@ public abstract class Tag implements Cloneable {
         }
 
         /**
-         * The DeserializePayload constructor.
+         * Constructs an empty list with room for the given number of tags, used by {@link NbtReader}.
          *
-         * @param name The name of the tags.
-         * @param i    The <code>InputStream</code> to deserialize the tags from.
-         * @throws IOException     if the input operation generates an exception.
-         * @throws FormatException if the tag type is TAG_End, the tags size is negative, or some other exception is thrown while deserializing the tags.
+         * @param name     The name of the tags.
+         * @param _type    The tag type this tags supports.
+         * @param capacity The number of tags the list is expected to hold.
          */
-        public List(java.lang.String name, InputStream i) throws IOException //DeserializePayload
-        {
+        List(java.lang.String name, Type _type, int capacity) {
             super(name);
-            type = Type.fromId(i.read());
-            int size = new DataInputStream(i).readInt();
-            if (size < 0) {
-                throw new FormatException("List size is negative: " + size);
-            }
-            if(size > 0) try {
-                java.lang.reflect.Constructor<? extends Tag> c = type.getImplementingClass().getConstructor(java.lang.String.class, InputStream.class);
-                for (int j = 0; j < size; ++j) {
-                    list.add(c.newInstance(null, i));
-                }
-            } catch (NoSuchMethodException | SecurityException | InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-                throw new FormatException(e);
-            }
+            type = _type;
+            list = new ArrayList<>(capacity);
         }
 
         /**
@@ -1025,21 +781,6 @@ public abstract class Tag implements Cloneable {
             return Type.LIST;
         }
 
-        /**
-         * Serializes this tags to the <code>OutputStream</code>.
-         *
-         * @param o The <code>OutputStream</code> to serialize this tags to.
-         * @throws IOException if the output operation generates an exception.
-         */
-        @Override
-        protected void serializePayload(OutputStream o) throws IOException {
-            o.write((byte) type.ordinal());
-            new DataOutputStream(o).writeInt(list.size());
-            for (int i = 0; i < list.size(); ++i) {
-                list.get(i).serializePayload(o);
-            }
-        }
-
         /**
          * Gives a textual representation of this tags with nice indenting even with nesting.
          *
@@ -1211,12 +952,21 @@ public abstract class Tag implements Cloneable {
         @Override
         public List clone() {
             List li = (List) super.clone();
-            li.list = new ArrayList<>();
-            for (int i = 0; i < list.size(); ++i) {
-                li.list.add(list.get(i).clone());
-            }
+            li.copyElements();
             return li;
         }
+
+        /**
+         * Replaces the elements of this freshly cloned list, which are still shared with the original, by independent
+         * copies.
+         */
+        void copyElements() {
+            java.util.List<Tag> shared = list;
+            list = new ArrayList<>(shared.size());
+            for (int i = 0; i < shared.size(); ++i) {
+                list.add(shared.get(i).clone());
+            }
+        }
     }
 
     /**
@@ -1224,9 +974,9 @@ public abstract class Tag implements Cloneable {
      */
     public static final class Compound extends Tag implements Iterable<Tag> {
         /**
-         * The list of tags in this compound tag.
+         * The tags in this compound tag, keyed by their names.
          */
-        private HashMap<java.lang.String, Tag> tags = new HashMap<>();
+        private TagMap tags = new TagMap();
 
         /**
          * The normal constructor.
@@ -1245,24 +995,7 @@ public abstract class Tag implements Cloneable {
                 if (t instanceof End) {
                     throw new IllegalArgumentException("Cannot manually add the End tag!");
                 }
-                this.tags.put(n, t);
-            }
-        }
-
-        /**
-         * The DeserializePayload constructor.
-         *
-         * @param name The name of this compound tag.
-         * @param i    The <code>InputStream</code> to deserialize the compound tag from.
-         * @throws IOException     if the input operation generates an exception.
-         * @throws FormatException if some other exception is thrown while deserializing the compound tag.
-         */
-        public Compound(java.lang.String name, InputStream i) throws IOException, FormatException //DeserializePayload
-        {
-            this(name);
-            Tag t;
-            while (!((t = deserialize(i)) instanceof End)) {
-                tags.put(t.getName(), t);
+                this.tags.put(t);
             }
         }
 
@@ -1287,20 +1020,6 @@ public abstract class Tag implements Cloneable {
             return Type.COMPOUND;
         }
 
-        /**
-         * Serializes this compound tag to the <code>OutputStream</code>.
-         *
-         * @param o The <code>OutputStream</code> to serialize this compound tag to.
-         * @throws IOException if the output operation generates an exception.
-         */
-        @Override
-        protected void serializePayload(OutputStream o) throws IOException {
-            for (Tag t : tags.values()) {
-                t.serialize(o);
-            }
-            new End().serialize(o);
-        }
-
         /**
          * Gives a textual representation of this compound tag with nice indenting even with nesting.
          *
@@ -1309,7 +1028,7 @@ public abstract class Tag implements Cloneable {
         @Override
         public java.lang.String toString() {
             java.lang.String s = "";
-            for (Tag t : tags.values()) {
+            for (Tag t : tags) {
                 if (s.length() != 0) {
                     s += ",\n";
                 }
@@ -1333,7 +1052,7 @@ public abstract class Tag implements Cloneable {
                 if (t.getType() == Type.END) {
                     throw new IllegalArgumentException("Cannot manually add a TAG_End!");
                 }
-                this.tags.put(n, t);
+                this.tags.put(t);
             }
         }
 
@@ -1343,7 +1062,9 @@ public abstract class Tag implements Cloneable {
          * @param c The compound tag from which to add the tags.
          */
         public void addAll(Tag.Compound c) {
-            tags.putAll(c.tags);
+            for (Tag t : c.tags) {
+                tags.put(t);
+            }
         }
 
         /**
@@ -1436,7 +1157,7 @@ public abstract class Tag implements Cloneable {
          */
         @Override
         public Iterator<Tag> iterator() {
-            return tags.values().iterator();
+            return tags.iterator();
         }
 
         /**
@@ -1447,10 +1168,7 @@ public abstract class Tag implements Cloneable {
         @Override
         public Compound clone() {
             Compound c = (Compound) super.clone();
-            c.tags = new HashMap<>();
-            for (Map.Entry<java.lang.String, Tag> e : tags.entrySet()) {
-                c.tags.put(e.getKey(), e.getValue().clone());
-            }
+            c.tags = tags.deepCopy();
             return c;
         }
     }
@@ -1475,28 +1193,6 @@ public abstract class Tag implements Cloneable {
             v = i;
         }
 
-        /**
-         * The DeserializePayload constructor.
-         *
-         * @param name The name of this integer array.
-         * @param i    The <code>InputStream</code> to deserialize the integer array from.
-         * @throws IOException     if the input operation generates an exception.
-         * @throws FormatException if the integer array size is negative.
-         */
-        public IntArray(java.lang.String name, InputStream i) throws IOException, FormatException //DeserializePayload
-        {
-            this(name, (int[]) null);
-            DataInputStream dis = new DataInputStream(i);
-            int size = dis.readInt();
-            if (size < 0) {
-                throw new FormatException("Integer Array size was negative: " + size);
-            }
-            v = new int[size];
-            for (int j = 0; j < size; ++j) {
-                v[j] = dis.readInt();
-            }
-        }
-
         /**
          * Returns the tag type that corresponds to TAG_Int_Array (?).
          *
@@ -1507,21 +1203,6 @@ public abstract class Tag implements Cloneable {
             return Type.INTARRAY;
         }
 
-        /**
-         * Serializes the integer array to the <code>OutputStream</code>.
-         *
-         * @param o The <code>OutputStream</code> to serialize this integer array to.
-         * @throws IOException if the output operation generates an exception.
-         */
-        @Override
-        protected void serializePayload(OutputStream o) throws IOException {
-            DataOutputStream dos = new DataOutputStream(o);
-            dos.writeInt(v.length);
-            for (int i : v) {
-                dos.writeInt(i);
-            }
-        }
-
         /**
          * Gives a textual representation of this integer array with each integer in base-10.
          *
@@ -1551,4 +1232,351 @@ public abstract class Tag implements Cloneable {
             return ia;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * TAG_Long_Array
+     */
+    public static final class LongArray extends Tag {
+        /**
+         * The long array in raw form.
+         */
+        public long[] v;
+
+        /**
+         * The normal constructor.
+         *
+         * @param name The name of this long array.
+         * @param l    The initial long array.
+         */
+        public LongArray(java.lang.String name, long[] l) {
+            super(name);
+            v = l;
+        }
+
+        /**
+         * Returns the tag type that corresponds to TAG_Long_Array.
+         *
+         * @return <code>Type.LONGARRAY</code>.
+         */
+        @Override
+        public Type getType() {
+            return Type.LONGARRAY;
+        }
+
+        /**
+         * Gives a textual representation of this long array with each long in base-10.
+         *
+         * @return A textual representation of this long array with each long in base-10.
+         */
+        @Override
+        public java.lang.String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (long l : v) {
+                if (sb.length() != 0) {
+                    sb.append(", ");
+                }
+                sb.append(l);
+            }
+            return "Long Array" + quoteName() + ": [" + sb + "]";
+        }
+
+        /**
+         * Returns an independent clone of this Long Array.
+         *
+         * @return An independent clone of this Long Array.
+         */
+        @Override
+        public LongArray clone() {
+            LongArray la = (LongArray) super.clone();
+            la.v = Arrays.copyOf(v, v.length);
+            return la;
+        }
+    }
+
+    /**
+     * Checks that the given index is within a list of the given size.
+     *
+     * @param index The index to check.
+     * @param size  The size of the list.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    static void checkIndex(int index, int size) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * A TAG_List of TAG_Double, backed by a primitive array instead of one tag per element.
+     * It's serialized exactly like a {@link List} of {@link Double} tags, and is what a {@link NbtReader} produces
+     * for such lists (e.g. the <code>Pos</code> and <code>Motion</code> of entities).
+     *
+     * All methods of {@link List} work on {@link #v}; the element tags they return are created on access.
+     */
+    public static final class ListOfDouble extends List {
+        /**
+         * The elements of this list in its first {@link #size} entries, followed by spare capacity for adding more.
+         */
+        double[] v;
+        /**
+         * The number of elements in {@link #v}.
+         */
+        int size;
+
+        /**
+         * The normal constructor.
+         *
+         * @param name The name of this list.
+         * @param d    The elements of this list.
+         */
+        public ListOfDouble(java.lang.String name, double... d) {
+            super(name, Type.DOUBLE, 0);
+            v = d;
+            size = d.length;
+            super.list = new Elements();
+        }
+
+        /**
+         * Returns the element at the given index.
+         *
+         * @param index The index of the element.
+         * @return The element at the given index.
+         * @throws IndexOutOfBoundsException if the index is out of range.
+         */
+        public double getDouble(int index) throws IndexOutOfBoundsException {
+            checkIndex(index, size);
+            return v[index];
+        }
+
+        /**
+         * Replaces the element at the given index.
+         *
+         * @param index The index of the element.
+         * @param d     The new element.
+         * @throws IndexOutOfBoundsException if the index is out of range.
+         */
+        public void setDouble(int index, double d) throws IndexOutOfBoundsException {
+            checkIndex(index, size);
+            v[index] = d;
+        }
+
+        /**
+         * Returns the elements of this list.
+         *
+         * @return A new array containing the elements of this list.
+         */
+        public double[] toArray() {
+            return Arrays.copyOf(v, size);
+        }
+
+        /**
+         * Gives a textual representation of this list.
+         *
+         * @return A textual representation of this list.
+         */
+        @Override
+        public java.lang.String toString() {
+            return "List of Double" + quoteName() + ": " + Arrays.toString(toArray());
+        }
+
+        /**
+         * Returns an independent clone of this list.
+         *
+         * @return An independent clone of this list.
+         */
+        @Override
+        public ListOfDouble clone() {
+            return (ListOfDouble) super.clone();
+        }
+
+        /**
+         * Copies {@link #v} without creating a tag per element.
+         */
+        @Override
+        void copyElements() {
+            v = toArray();
+            super.list = new Elements();
+        }
+
+        /**
+         * The view of {@link #v} used as the tag list of this list.
+         */
+        private final class Elements extends AbstractList<Tag> implements RandomAccess {
+            @Override
+            public Tag get(int index) {
+                return new Double(null, getDouble(index));
+            }
+
+            @Override
+            public Tag set(int index, Tag t) {
+                Tag old = get(index);
+                v[index] = ((Double) t).v;
+                return old;
+            }
+
+            @Override
+            public void add(int index, Tag t) {
+                if (index < 0 || index > size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                }
+                if (size == v.length) {
+                    // Grow geometrically, so that adding n elements takes O(n) time overall
+                    v = Arrays.copyOf(v, size + (size >> 1) + 1);
+                }
+                System.arraycopy(v, index, v, index + 1, size - index);
+                v[index] = ((Double) t).v;
+                size++;
+            }
+
+            @Override
+            public Tag remove(int index) {
+                Tag old = get(index);
+                System.arraycopy(v, index + 1, v, index, size - index - 1);
+                size--;
+                return old;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        }
+    }
+
+    /**
+     * A TAG_List of TAG_Int, backed by a primitive array instead of one tag per element.
+     * It's serialized exactly like a {@link List} of {@link Int} tags, and is what a {@link NbtReader} produces
+     * for such lists.
+     *
+     * All methods of {@link List} work on {@link #v}; the element tags they return are created on access.
+     */
+    public static final class ListOfInt extends List {
+        /**
+         * The elements of this list in its first {@link #size} entries, followed by spare capacity for adding more.
+         */
+        int[] v;
+        /**
+         * The number of elements in {@link #v}.
+         */
+        int size;
+
+        /**
+         * The normal constructor.
+         *
+         * @param name The name of this list.
+         * @param i    The elements of this list.
+         */
+        public ListOfInt(java.lang.String name, int... i) {
+            super(name, Type.INT, 0);
+            v = i;
+            size = i.length;
+            super.list = new Elements();
+        }
+
+        /**
+         * Returns the element at the given index.
+         *
+         * @param index The index of the element.
+         * @return The element at the given index.
+         * @throws IndexOutOfBoundsException if the index is out of range.
+         */
+        public int getInt(int index) throws IndexOutOfBoundsException {
+            checkIndex(index, size);
+            return v[index];
+        }
+
+        /**
+         * Replaces the element at the given index.
+         *
+         * @param index The index of the element.
+         * @param i     The new element.
+         * @throws IndexOutOfBoundsException if the index is out of range.
+         */
+        public void setInt(int index, int i) throws IndexOutOfBoundsException {
+            checkIndex(index, size);
+            v[index] = i;
+        }
+
+        /**
+         * Returns the elements of this list.
+         *
+         * @return A new array containing the elements of this list.
+         */
+        public int[] toArray() {
+            return Arrays.copyOf(v, size);
+        }
+
+        /**
+         * Gives a textual representation of this list.
+         *
+         * @return A textual representation of this list.
+         */
+        @Override
+        public java.lang.String toString() {
+            return "List of Int" + quoteName() + ": " + Arrays.toString(toArray());
+        }
+
+        /**
+         * Returns an independent clone of this list.
+         *
+         * @return An independent clone of this list.
+         */
+        @Override
+        public ListOfInt clone() {
+            return (ListOfInt) super.clone();
+        }
+
+        /**
+         * Copies {@link #v} without creating a tag per element.
+         */
+        @Override
+        void copyElements() {
+            v = toArray();
+            super.list = new Elements();
+        }
+
+        /**
+         * The view of {@link #v} used as the tag list of this list.
+         */
+        private final class Elements extends AbstractList<Tag> implements RandomAccess {
+            @Override
+            public Tag get(int index) {
+                return new Int(null, getInt(index));
+            }
+
+            @Override
+            public Tag set(int index, Tag t) {
+                Tag old = get(index);
+                v[index] = ((Int) t).v;
+                return old;
+            }
+
+            @Override
+            public void add(int index, Tag t) {
+                if (index < 0 || index > size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                }
+                if (size == v.length) {
+                    // Grow geometrically, so that adding n elements takes O(n) time overall
+                    v = Arrays.copyOf(v, size + (size >> 1) + 1);
+                }
+                System.arraycopy(v, index, v, index + 1, size - index);
+                v[index] = ((Int) t).v;
+                size++;
+            }
+
+            @Override
+            public Tag remove(int index) {
+                Tag old = get(index);
+                System.arraycopy(v, index + 1, v, index, size - index - 1);
+                size--;
+                return old;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        }
+    }
+}
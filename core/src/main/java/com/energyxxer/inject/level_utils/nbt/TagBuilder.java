@@ -0,0 +1,169 @@
+package com.energyxxer.inject.level_utils.nbt;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A visitor building a {@link Tag} tree from the events of a {@link NbtReader}, only including the tags picked by a
+ * {@link TagSelector}. Lists of doubles and ints are built as {@link Tag.ListOfDouble} and {@link Tag.ListOfInt}.
+ */
+final class TagBuilder implements NbtVisitor {
+    /**
+     * The compound and list tags currently being built, innermost first.
+     */
+    private final Deque<Tag> containers = new ArrayDeque<>();
+    /**
+     * The selectors applying to the children of the {@link #containers}, innermost first.
+     */
+    private final Deque<TagSelector> selectors = new ArrayDeque<>();
+    /**
+     * The selector applying to the root tag's children.
+     */
+    private final TagSelector rootSelector;
+    /**
+     * The selector returned for the most recently selected tag, to be applied to its children.
+     */
+    private TagSelector selected;
+    private Tag result;
+    /**
+     * The index of the next element of the primitive list being built. Primitive lists can't contain other lists, so
+     * only one of them is built at a time.
+     */
+    private int primitiveIndex;
+
+    TagBuilder(TagSelector rootSelector) {
+        this.rootSelector = rootSelector;
+    }
+
+    /**
+     * Returns the built tag.
+     *
+     * @return The root tag, or a TAG_End if no tag was read.
+     */
+    Tag getResult() {
+        return (result != null) ? result : new Tag.End();
+    }
+
+    @Override
+    public boolean select(String name, Tag.Type type) {
+        selected = containers.isEmpty() ? rootSelector : selectors.peek().select(name, type);
+        return selected != null;
+    }
+
+    /**
+     * Returns the selector for a compound or list that is beginning. Elements of lists are never
+     * {@link #select(String, Tag.Type) selected} individually and inherit the selector of their list.
+     */
+    private TagSelector selectorFor(String name) {
+        return (name != null || containers.isEmpty()) ? selected : selectors.peek();
+    }
+
+    @Override
+    public void visitCompound(String name) {
+        selectors.push(selectorFor(name));
+        containers.push(new Tag.Compound(name));
+    }
+
+    @Override
+    public void visitCompoundEnd() {
+        end();
+    }
+
+    @Override
+    public void visitList(String name, Tag.Type containedType, int size) {
+        selectors.push(selectorFor(name));
+        switch(containedType) {
+            case DOUBLE:
+                containers.push(new Tag.ListOfDouble(name, new double[size]));
+                primitiveIndex = 0;
+                break;
+            case INT:
+                containers.push(new Tag.ListOfInt(name, new int[size]));
+                primitiveIndex = 0;
+                break;
+            default:
+                containers.push(new Tag.List(name, containedType, Math.min(size, 1024)));
+        }
+    }
+
+    @Override
+    public void visitListEnd() {
+        end();
+    }
+
+    private void end() {
+        selectors.pop();
+        add(containers.pop());
+    }
+
+    private void add(Tag tag) {
+        Tag parent = containers.peek();
+        if(parent == null) {
+            result = tag;
+        } else if(parent instanceof Tag.Compound) {
+            ((Tag.Compound) parent).add(tag);
+        } else {
+            ((Tag.List) parent).add(tag);
+        }
+    }
+
+    @Override
+    public void visitByte(String name, byte v) {
+        add(new Tag.Byte(name, v));
+    }
+
+    @Override
+    public void visitShort(String name, short v) {
+        add(new Tag.Short(name, v));
+    }
+
+    @Override
+    public void visitInt(String name, int v) {
+        Tag parent = containers.peek();
+        if(parent instanceof Tag.ListOfInt) {
+            ((Tag.ListOfInt) parent).v[primitiveIndex++] = v;
+            return;
+        }
+        add(new Tag.Int(name, v));
+    }
+
+    @Override
+    public void visitLong(String name, long v) {
+        add(new Tag.Long(name, v));
+    }
+
+    @Override
+    public void visitFloat(String name, float v) {
+        add(new Tag.Float(name, v));
+    }
+
+    @Override
+    public void visitDouble(String name, double v) {
+        Tag parent = containers.peek();
+        if(parent instanceof Tag.ListOfDouble) {
+            ((Tag.ListOfDouble) parent).v[primitiveIndex++] = v;
+            return;
+        }
+        add(new Tag.Double(name, v));
+    }
+
+    @Override
+    public void visitString(String name, String v) {
+        add(new Tag.String(name, v));
+    }
+
+    @Override
+    public void visitByteArray(String name, byte[] v) {
+        add(new Tag.ByteArray(name, v));
+    }
+
+    @Override
+    public void visitIntArray(String name, int[] v) {
+        add(new Tag.IntArray(name, v));
+    }
+
+    @Override
+    public void visitLongArray(String name, long[] v) {
+        add(new Tag.LongArray(name, v));
+    }
+}
@@ -0,0 +1,175 @@
+package com.energyxxer.inject.level_utils.nbt;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The compact storage of the children of a {@link Tag.Compound}, keyed by their names.
+ *
+ * The tags are kept in insertion order in a plain array. Small compounds, which make up most of chunk data, are
+ * searched linearly. Once a compound grows beyond {@link #LINEAR_MAX} children, an open-addressing index into the
+ * array is added. Names are compared by identity before falling back to <code>equals</code>, which makes lookups of
+ * interned names (such as literals, or names read by a {@link NbtReader}) cheap.
+ */
+final class TagMap implements Iterable<Tag> {
+    /**
+     * The largest number of tags searched linearly.
+     */
+    private static final int LINEAR_MAX = 8;
+
+    private static final Tag[] EMPTY = new Tag[0];
+
+    /**
+     * The tags, in insertion order. Only the first {@link #size} elements are used.
+     */
+    private Tag[] tags = EMPTY;
+    private int size;
+    /**
+     * The open-addressing hash index, containing <code>position + 1</code> of tags in {@link #tags} or <code>0</code>
+     * for free slots. <code>null</code> as long as the tags are searched linearly.
+     */
+    private int[] index;
+
+    int size() {
+        return size;
+    }
+
+    Tag get(String name) {
+        int i = indexOf(name);
+        return (i >= 0) ? tags[i] : null;
+    }
+
+    /**
+     * Adds the given tag, replacing any tag with the same name.
+     *
+     * @param tag The tag to add. Its name must not be <code>null</code>.
+     *
+     * @return The replaced tag, or <code>null</code> if there was none.
+     */
+    Tag put(Tag tag) {
+        String name = tag.getName();
+        int i = indexOf(name);
+        if(i >= 0) {
+            Tag old = tags[i];
+            tags[i] = tag;
+            return old;
+        }
+        if(size == tags.length) {
+            tags = Arrays.copyOf(tags, Math.max(4, size * 2));
+        }
+        tags[size++] = tag;
+        if(index != null) {
+            if(size * 2 > index.length) {
+                rebuildIndex();
+            } else {
+                insertIntoIndex(name, size - 1);
+            }
+        } else if(size > LINEAR_MAX) {
+            rebuildIndex();
+        }
+        return null;
+    }
+
+    Tag remove(String name) {
+        int i = indexOf(name);
+        if(i < 0) return null;
+        Tag old = tags[i];
+        removeAt(i);
+        return old;
+    }
+
+    private void removeAt(int i) {
+        System.arraycopy(tags, i + 1, tags, i, size - i - 1);
+        tags[--size] = null;
+        if(index != null) {
+            if(size > LINEAR_MAX) {
+                rebuildIndex();
+            } else {
+                index = null;
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of this map containing clones of all of its tags.
+     */
+    TagMap deepCopy() {
+        TagMap copy = new TagMap();
+        copy.tags = new Tag[size];
+        for(int i = 0; i < size; i++) {
+            copy.tags[i] = tags[i].clone();
+        }
+        copy.size = size;
+        copy.index = (index != null) ? index.clone() : null;
+        return copy;
+    }
+
+    private int indexOf(String name) {
+        if(index == null) {
+            for(int i = 0; i < size; i++) {
+                if(tags[i].getName() == name) return i;
+            }
+            for(int i = 0; i < size; i++) {
+                if(tags[i].getName().equals(name)) return i;
+            }
+            return -1;
+        }
+        int mask = index.length - 1;
+        for(int slot = hash(name) & mask; ; slot = (slot + 1) & mask) {
+            int entry = index[slot];
+            if(entry == 0) return -1;
+            String n = tags[entry - 1].getName();
+            if(n == name || n.equals(name)) return entry - 1;
+        }
+    }
+
+    private void rebuildIndex() {
+        int capacity = Integer.highestOneBit(size * 4 - 1);
+        index = new int[Math.max(capacity, 16)];
+        for(int i = 0; i < size; i++) {
+            insertIntoIndex(tags[i].getName(), i);
+        }
+    }
+
+    private void insertIntoIndex(String name, int position) {
+        int mask = index.length - 1;
+        int slot = hash(name) & mask;
+        while(index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = position + 1;
+    }
+
+    private static int hash(String name) {
+        int h = name.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public Iterator<Tag> iterator() {
+        return new Iterator<Tag>() {
+            private int next;
+            private boolean removable;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Tag next() {
+                if(next >= size) throw new NoSuchElementException();
+                removable = true;
+                return tags[next++];
+            }
+
+            @Override
+            public void remove() {
+                if(!removable) throw new IllegalStateException();
+                removable = false;
+                removeAt(--next);
+            }
+        };
+    }
+}
@@ -0,0 +1,77 @@
+package com.energyxxer.inject.level_utils.nbt;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Decides which tags are deserialized by {@link NbtReader#read(TagSelector)}.
+ * Tags that aren't selected are skipped using their length fields, without creating any objects for them.
+ *
+ * A selector is applied to the children of a TAG_Compound. For a TAG_List, the selector is applied to the
+ * children of each of its elements.
+ */
+@FunctionalInterface
+public interface TagSelector {
+    /**
+     * Selects every tag.
+     */
+    TagSelector ALL = (name, type) -> TagSelector.ALL;
+
+    /**
+     * Selects no tag.
+     */
+    TagSelector NONE = (name, type) -> null;
+
+    /**
+     * Decides whether the child tag with the given name and type should be deserialized.
+     *
+     * @param name The name of the child tag.
+     * @param type The type of the child tag.
+     *
+     * @return The selector to apply to the child's own children, or <code>null</code> if the child should be skipped.
+     */
+    TagSelector select(String name, Tag.Type type);
+
+    /**
+     * Returns a selector that selects every tag selected by either this selector or the given one.
+     *
+     * @param other The selector to combine with this one.
+     *
+     * @return The combined selector.
+     */
+    default TagSelector or(TagSelector other) {
+        if(this == ALL || other == ALL) return ALL;
+        return (name, type) -> {
+            TagSelector a = this.select(name, type);
+            TagSelector b = other.select(name, type);
+            if(a == null) return b;
+            if(b == null) return a;
+            return a.or(b);
+        };
+    }
+
+    /**
+     * Returns a selector that only selects the child with the given name.
+     *
+     * @param name The name of the child to select.
+     * @param nested The selector to apply to the selected child's children.
+     *
+     * @return The selector.
+     */
+    static TagSelector named(String name, TagSelector nested) {
+        return (n, type) -> n.equals(name) ? nested : null;
+    }
+
+    /**
+     * Returns a selector that selects the children with the given names, along with all of their contents.
+     *
+     * @param names The names of the children to select.
+     *
+     * @return The selector.
+     */
+    static TagSelector children(String... names) {
+        Set<String> set = new HashSet<>(Arrays.asList(names));
+        return (n, type) -> set.contains(n) ? ALL : null;
+    }
+}
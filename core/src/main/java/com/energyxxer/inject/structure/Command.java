@@ -5,9 +5,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 
-import com.evilco.mc.nbt.tag.TagByte;
-import com.evilco.mc.nbt.tag.TagCompound;
-import com.evilco.mc.nbt.tag.TagString;
+import com.energyxxer.inject.level_utils.nbt.Tag;
 
 /**
  * The common information shared by {@link CommandBlock} and {@link CommandBlockMinecart}.
@@ -67,13 +65,13 @@ public class Command implements de.adrodoc55.minecraft.placement.Command {
     return false;
   }
 
-  public TagCompound toNbt() {
-    TagCompound nbt = new TagCompound("nbt");
-    nbt.setTag(new TagString("Command", command));
+  public Tag.Compound toNbt() {
+    Tag.Compound nbt = new Tag.Compound("nbt");
+    nbt.add(new Tag.String("Command", command));
     if (name != null) {
-      nbt.setTag(new TagString("CustomName", name));
+      nbt.add(new Tag.String("CustomName", name));
     }
-    nbt.setTag(new TagByte("TrackOutput", (byte) (trackOutput ? 1 : 0)));
+    nbt.add(new Tag.Byte("TrackOutput", (byte) (trackOutput ? 1 : 0)));
     return nbt;
   }
 
@@ -7,8 +7,7 @@ import java.util.Map;
 
 import javax.annotation.concurrent.Immutable;
 
-import com.evilco.mc.nbt.tag.TagByte;
-import com.evilco.mc.nbt.tag.TagCompound;
+import com.energyxxer.inject.level_utils.nbt.Tag;
 
 import de.adrodoc55.minecraft.coordinate.Vec3I;
 import de.adrodoc55.minecraft.coordinate.Direction3;
@@ -127,9 +126,9 @@ public class CommandBlock implements Block {
   }
 
   @Override
-  public TagCompound getNbt() {
-    TagCompound nbt = command.toNbt();
-    nbt.setTag(new TagByte("auto", auto ? 1 : (byte) 0));
+  public Tag.Compound getNbt() {
+    Tag.Compound nbt = command.toNbt();
+    nbt.add(new Tag.Byte("auto", auto ? 1 : (byte) 0));
     return nbt;
   }
 
@@ -6,10 +6,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import com.evilco.mc.nbt.tag.TagCompound;
-import com.evilco.mc.nbt.tag.TagList;
-import com.evilco.mc.nbt.tag.TagString;
-import com.google.common.collect.Lists;
+import com.energyxxer.inject.level_utils.nbt.Tag;
 
 import de.adrodoc55.minecraft.coordinate.Vec3D;
 import de.adrodoc55.minecraft.structure.Entity;
@@ -65,10 +62,14 @@ public class CommandBlockMinecart implements Entity {
   }
 
   @Override
-  public TagCompound getNbt() {
-    TagCompound nbt = command.toNbt();
-    nbt.setTag(new TagString("id", "minecraft:commandblock_minecart"));
-    nbt.setTag(new TagList("Tags", Lists.transform(tags, tag -> new TagString("", tag))));
+  public Tag.Compound getNbt() {
+    Tag.Compound nbt = command.toNbt();
+    nbt.add(new Tag.String("id", "minecraft:commandblock_minecart"));
+    Tag.List tags = new Tag.List("Tags", Tag.Type.STRING);
+    for (String tag : this.tags) {
+      tags.add(new Tag.String(null, tag));
+    }
+    nbt.add(tags);
     return nbt;
   }
 
@@ -7,8 +7,7 @@ import java.util.Map;
 
 import javax.annotation.Nullable;
 
-import com.evilco.mc.nbt.tag.TagCompound;
-import com.evilco.mc.nbt.tag.TagString;
+import com.energyxxer.inject.level_utils.nbt.Tag;
 
 import de.adrodoc55.minecraft.coordinate.Vec3I;
 import de.adrodoc55.minecraft.structure.Block;
@@ -51,11 +50,11 @@ public class StructureBlock implements Block {
   }
 
   @Override
-  public TagCompound getNbt() {
-    TagCompound nbt = new TagCompound("nbt");
-    nbt.setTag(new TagString("mode", mode.name()));
+  public Tag.Compound getNbt() {
+    Tag.Compound nbt = new Tag.Compound("nbt");
+    nbt.add(new Tag.String("mode", mode.name()));
     if (name != null) {
-      nbt.setTag(new TagString("name", name));
+      nbt.add(new Tag.String("name", name));
     }
     return nbt;
   }
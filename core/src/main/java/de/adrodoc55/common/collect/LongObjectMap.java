@@ -0,0 +1,298 @@
+package de.adrodoc55.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A map from primitive {@code long} keys to non {@code null} values that iterates in insertion
+ * order. Unlike a {@code LinkedHashMap<Long, V>} it neither boxes keys nor allocates an entry per
+ * mapping.
+ * <p>
+ * The mappings are stored in insertion order in two parallel arrays, which are indexed by an open
+ * addressing hash table with linear probing. Removed mappings leave a gap in the arrays until they
+ * have to grow.
+ *
+ * @author Adrodoc55
+ */
+@NotThreadSafe
+public class LongObjectMap<V> {
+  /**
+   * The keys in insertion order.
+   */
+  private long[] keys;
+  /**
+   * The values in insertion order, {@code null} where the mapping was removed.
+   */
+  private Object[] values;
+  /**
+   * The number of used elements of {@link #keys} and {@link #values}, including removed mappings.
+   */
+  private int end;
+  /**
+   * The number of mappings.
+   */
+  private int size;
+  /**
+   * The hash table, each slot contains the index into {@link #keys} and {@link #values} plus one
+   * or {@code 0} if the slot is free. The length is a power of two and at least twice the length
+   * of {@link #keys}.
+   */
+  private int[] table;
+
+  public LongObjectMap() {
+    this(16);
+  }
+
+  /**
+   * @param expectedSize the number of mappings that fit in without growing
+   */
+  public LongObjectMap(int expectedSize) {
+    checkArgument(expectedSize >= 0, "expectedSize must not be negative!");
+    allocate(Math.max(expectedSize, 4));
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new Object[capacity];
+    table = new int[Integer.highestOneBit(capacity - 1) << 2];
+  }
+
+  private static int hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /**
+   * Returns the slot of the table that contains {@code key} or {@code -slot - 1} for the free slot
+   * where it would be inserted.
+   */
+  private int find(long key) {
+    int mask = table.length - 1;
+    for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+      int index = table[slot] - 1;
+      if (index < 0) {
+        return -slot - 1;
+      }
+      if (keys[index] == key) {
+        return slot;
+      }
+    }
+  }
+
+  /**
+   * @return the number of mappings
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return whether or not {@code this} map contains no mappings
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @param key the key
+   * @return whether or not {@code this} map contains a mapping for the key
+   */
+  public boolean containsKey(long key) {
+    return find(key) >= 0;
+  }
+
+  /**
+   * @param key the key
+   * @return the value mapped to the key or {@code null} if there is none
+   */
+  @SuppressWarnings("unchecked")
+  public @Nullable V get(long key) {
+    int slot = find(key);
+    return slot >= 0 ? (V) values[table[slot] - 1] : null;
+  }
+
+  /**
+   * Maps the key to the value. If the key is already mapped it keeps its position in the iteration
+   * order.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the value previously mapped to the key or {@code null} if there was none
+   */
+  @SuppressWarnings("unchecked")
+  public @Nullable V put(long key, V value) {
+    checkNotNull(value, "value == null!");
+    int slot = find(key);
+    if (slot >= 0) {
+      int index = table[slot] - 1;
+      V previous = (V) values[index];
+      values[index] = value;
+      return previous;
+    }
+    if (end == keys.length) {
+      grow();
+      slot = find(key);
+    }
+    keys[end] = key;
+    values[end] = value;
+    table[-slot - 1] = ++end;
+    size++;
+    return null;
+  }
+
+  /**
+   * Removes the mapping of the key.
+   *
+   * @param key the key
+   * @return the value previously mapped to the key or {@code null} if there was none
+   */
+  @SuppressWarnings("unchecked")
+  public @Nullable V remove(long key) {
+    int slot = find(key);
+    if (slot < 0) {
+      return null;
+    }
+    int index = table[slot] - 1;
+    V previous = (V) values[index];
+    values[index] = null;
+    size--;
+    if (index == end - 1) {
+      end--;
+    }
+    // Shift back subsequent entries of the cluster, so that lookups never stop at the free slot
+    int mask = table.length - 1;
+    int gap = slot;
+    for (int next = (gap + 1) & mask;; next = (next + 1) & mask) {
+      int nextIndex = table[next] - 1;
+      if (nextIndex < 0) {
+        break;
+      }
+      int ideal = hash(keys[nextIndex]) & mask;
+      if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+        table[gap] = table[next];
+        gap = next;
+      }
+    }
+    table[gap] = 0;
+    return previous;
+  }
+
+  /**
+   * Removes all mappings.
+   */
+  public void clear() {
+    Arrays.fill(values, 0, end, null);
+    Arrays.fill(table, 0);
+    end = 0;
+    size = 0;
+  }
+
+  /**
+   * Makes room for at least one more mapping, either by closing the gaps of removed mappings or by
+   * doubling the capacity.
+   */
+  private void grow() {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    int oldEnd = end;
+    if (size * 2 > oldKeys.length) {
+      allocate(oldKeys.length * 2);
+    } else {
+      keys = new long[oldKeys.length];
+      values = new Object[oldKeys.length];
+      Arrays.fill(table, 0);
+    }
+    end = 0;
+    int mask = table.length - 1;
+    for (int i = 0; i < oldEnd; i++) {
+      if (oldValues[i] != null) {
+        keys[end] = oldKeys[i];
+        values[end] = oldValues[i];
+        int slot = hash(oldKeys[i]) & mask;
+        while (table[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = ++end;
+      }
+    }
+  }
+
+  /**
+   * Performs the action for each key in insertion order.
+   *
+   * @param action the action
+   */
+  public void forEachKey(LongConsumer action) {
+    for (int i = 0; i < end; i++) {
+      if (values[i] != null) {
+        action.accept(keys[i]);
+      }
+    }
+  }
+
+  /**
+   * @return a view of the values in insertion order
+   */
+  public Collection<V> values() {
+    return new AbstractCollection<V>() {
+      @Override
+      public Iterator<V> iterator() {
+        return new Iterator<V>() {
+          private int next = skipRemoved(0);
+
+          private int skipRemoved(int i) {
+            while (i < end && values[i] == null) {
+              i++;
+            }
+            return i;
+          }
+
+          @Override
+          public boolean hasNext() {
+            return next < end;
+          }
+
+          @Override
+          @SuppressWarnings("unchecked")
+          public V next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            V result = (V) values[next];
+            next = skipRemoved(next + 1);
+            return result;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("{");
+    for (int i = 0; i < end; i++) {
+      if (values[i] != null) {
+        if (sb.length() > 1) {
+          sb.append(", ");
+        }
+        sb.append(keys[i]).append('=').append(values[i]);
+      }
+    }
+    return sb.append('}').toString();
+  }
+}
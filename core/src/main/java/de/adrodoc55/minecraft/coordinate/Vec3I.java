@@ -3,8 +3,6 @@ package de.adrodoc55.minecraft.coordinate;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Optional;
-import java.util.function.BinaryOperator;
-import java.util.function.IntBinaryOperator;
 
 import javax.annotation.concurrent.Immutable;
 
@@ -44,20 +42,57 @@ public class Vec3I implements Cloneable {
   }
 
   public static Vec3I min(Vec3I a, Vec3I b) {
-    return getBinaryOperator(Math::min).apply(a, b);
+    if (a.x <= b.x && a.y <= b.y && a.z <= b.z) {
+      return a;
+    }
+    if (b.x <= a.x && b.y <= a.y && b.z <= a.z) {
+      return b;
+    }
+    return new Vec3I(Math.min(a.x, b.x), Math.min(a.y, b.y), Math.min(a.z, b.z));
   }
 
   public static Vec3I max(Vec3I a, Vec3I b) {
-    return getBinaryOperator(Math::max).apply(a, b);
+    if (a.x >= b.x && a.y >= b.y && a.z >= b.z) {
+      return a;
+    }
+    if (b.x >= a.x && b.y >= a.y && b.z >= a.z) {
+      return b;
+    }
+    return new Vec3I(Math.max(a.x, b.x), Math.max(a.y, b.y), Math.max(a.z, b.z));
+  }
+
+  private static final int PACKED_Y_BITS = 12;
+  private static final int PACKED_XZ_BITS = 26;
+  private static final long PACKED_Y_MASK = (1L << PACKED_Y_BITS) - 1;
+  private static final long PACKED_XZ_MASK = (1L << PACKED_XZ_BITS) - 1;
+  private static final int PACKED_Z_SHIFT = PACKED_Y_BITS;
+  private static final int PACKED_X_SHIFT = PACKED_Y_BITS + PACKED_XZ_BITS;
+
+  /**
+   * Packs a coordinate into a single {@code long} the same way Minecraft does: 26 bits for x and z
+   * and 12 bits for y, each in two's complement. This allows coordinates to be used as keys
+   * without allocating {@link Vec3I}s.
+   *
+   * @param x the x coordinate between -2<sup>25</sup> (inclusive) and 2<sup>25</sup> (exclusive)
+   * @param y the y coordinate between -2048 (inclusive) and 2048 (exclusive)
+   * @param z the z coordinate between -2<sup>25</sup> (inclusive) and 2<sup>25</sup> (exclusive)
+   * @return the packed coordinate
+   * @see #isPackable(int, int, int)
+   */
+  public static long pack(int x, int y, int z) {
+    return (x & PACKED_XZ_MASK) << PACKED_X_SHIFT | (z & PACKED_XZ_MASK) << PACKED_Z_SHIFT
+        | (y & PACKED_Y_MASK);
   }
 
-  private static BinaryOperator<Vec3I> getBinaryOperator(IntBinaryOperator op) {
-    return (a, b) -> {
-      int x = op.applyAsInt(a.x, b.x);
-      int y = op.applyAsInt(a.y, b.y);
-      int z = op.applyAsInt(a.z, b.z);
-      return new Vec3I(x, y, z);
-    };
+  /**
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @param z the z coordinate
+   * @return whether or not the coordinate can be {@link #pack(int, int, int) packed} without loss
+   */
+  public static boolean isPackable(int x, int y, int z) {
+    return x >> (PACKED_XZ_BITS - 1) == x >> 31 && z >> (PACKED_XZ_BITS - 1) == z >> 31
+        && y >> (PACKED_Y_BITS - 1) == y >> 31;
   }
 
   public final int x;
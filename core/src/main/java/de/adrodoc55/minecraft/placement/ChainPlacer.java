@@ -4,9 +4,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static de.adrodoc55.minecraft.coordinate.Direction3.SOUTH;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
-import java.util.ListIterator;
 
 import javax.annotation.Nullable;
 
@@ -47,27 +45,31 @@ class ChainPlacer<C extends Command> {
   public ChainPlacer(List<? extends C> chain, List<? extends Vec3I> curve) {
     this.chain = checkNotNull(chain, "chain == null!");
     this.curve = checkNotNull(curve, "curve == null!");
-    commandIterator = chain.listIterator();
-    coordinateIterator = curve.listIterator();
   }
 
-  private ListIterator<? extends C> commandIterator;
-  private ListIterator<? extends Vec3I> coordinateIterator;
-
-  private static class Backup<C extends Command> {
-    int commandIndex;
-    int coordinateIndex;
-    List<CommandBlock<C>> result;
+  /**
+   * The placed command blocks. Rolling back to a backup truncates this list instead of restoring a
+   * copy of it.
+   */
+  private final List<CommandBlock<C>> result = new ArrayList<>();
 
-    public Backup(int commandIndex, int coordinateIndex,
-        Collection<? extends CommandBlock<C>> result) {
-      this.commandIndex = commandIndex;
-      this.coordinateIndex = coordinateIndex;
-      this.result = new ArrayList<>(result);
-    }
-  }
+  /**
+   * The index in {@link #chain} of the next command to place.
+   */
+  private int commandIndex;
+  /**
+   * The index in {@link #curve} of {@link #currentCoordinate}.
+   */
+  private int coordinateIndex;
 
-  private @Nullable Backup<C> backup;
+  /**
+   * The state to roll back to if a conditional command can't be placed: the indices in
+   * {@link #chain} and {@link #curve} and the size of {@link #result} before the last
+   * non-conditional command was placed. Negative if there is no backup.
+   */
+  private int backupCommandIndex = -1;
+  private int backupCoordinateIndex;
+  private int backupResultSize;
 
   /**
    * The {@link Direction3} of the command block that was last placed or {@code null} if no command
@@ -87,21 +89,33 @@ class ChainPlacer<C extends Command> {
    */
   private Direction3 currentDirection;
 
+  /**
+   * Places the chain in a single pass over the {@link #curve}. Each command is placed once, except
+   * for conditional commands that are rolled back because they would end up at a turn. Rolling
+   * back only resets indices, so the placement takes time linear in the length of the chain.
+   */
   public List<CommandBlock<C>> place() throws NotEnoughSpaceException {
-    backup = null;
+    result.clear();
+    commandIndex = 0;
+    backupCommandIndex = -1;
+    if (chain.isEmpty()) {
+      return result;
+    }
+    if (curve.isEmpty()) {
+      throw new NotEnoughSpaceException();
+    }
     setCoordinateIndex(0);
-    List<CommandBlock<C>> result = new ArrayList<>();
-    while (commandIterator.hasNext()) {
-      C command = commandIterator.next();
+    while (commandIndex < chain.size()) {
+      C command = chain.get(commandIndex++);
       if (canPlaceCommand(command)) {
         if (canPlaceNoOperationInsteadOf(command)) {
-          createBackup(result);
+          createBackup(commandIndex - 1);
         }
-        place(result, command);
+        place(command);
       } else {
-        result = restoreBackup();
-        placeNoOperation(result);
-        createBackup(result);
+        restoreBackup();
+        placeNoOperation();
+        createBackup(commandIndex);
       }
     }
     return result;
@@ -116,36 +130,39 @@ class ChainPlacer<C extends Command> {
     return !command.isConditional();
   }
 
-  private void placeNoOperation(List<CommandBlock<C>> result) throws NotEnoughSpaceException {
-    place(result, null);
+  private void placeNoOperation() throws NotEnoughSpaceException {
+    place(null);
   }
 
-  private void place(List<CommandBlock<C>> result, @Nullable C command)
-      throws NotEnoughSpaceException {
+  private void place(@Nullable C command) throws NotEnoughSpaceException {
     result.add(new CommandBlock<>(command, currentCoordinate, currentDirection));
     incrementCoordinateIndex();
   }
 
-  private void createBackup(Collection<? extends CommandBlock<C>> result) {
-    backup =
-        new Backup<>(commandIterator.previousIndex(), coordinateIterator.previousIndex(), result);
+  /**
+   * Remembers the current state, so that the command at {@code nextCommandIndex} can be placed
+   * again after a NOP.
+   */
+  private void createBackup(int nextCommandIndex) {
+    backupCommandIndex = nextCommandIndex;
+    backupCoordinateIndex = coordinateIndex;
+    backupResultSize = result.size();
   }
 
-  private List<CommandBlock<C>> restoreBackup() throws NotEnoughSpaceException {
-    if (backup == null) {
+  private void restoreBackup() throws NotEnoughSpaceException {
+    if (backupCommandIndex < 0) {
       throw new NotEnoughSpaceException();
     }
-    commandIterator = chain.listIterator(backup.commandIndex);
-    setCoordinateIndex(backup.coordinateIndex);
-    return backup.result;
+    commandIndex = backupCommandIndex;
+    result.subList(backupResultSize, result.size()).clear();
+    setCoordinateIndex(backupCoordinateIndex);
   }
 
   private void setCoordinateIndex(int coordinateIndex) {
-    coordinateIterator = curve.listIterator(coordinateIndex);
-    currentCoordinate = coordinateIterator.next();
+    this.coordinateIndex = coordinateIndex;
+    currentCoordinate = curve.get(coordinateIndex);
     if (coordinateIndex > 0) {
-      Vec3I previousCoordinate = curve.get(coordinateIndex - 1);
-      previousDirection = Direction3.valueOf(currentCoordinate.minus(previousCoordinate));
+      previousDirection = getStep(coordinateIndex - 1);
     } else {
       previousDirection = null;
     }
@@ -153,19 +170,28 @@ class ChainPlacer<C extends Command> {
   }
 
   private void incrementCoordinateIndex() throws NotEnoughSpaceException {
-    if (!coordinateIterator.hasNext()) {
+    if (coordinateIndex + 1 >= curve.size()) {
       throw new NotEnoughSpaceException();
     }
-    currentCoordinate = coordinateIterator.next();
+    currentCoordinate = curve.get(++coordinateIndex);
     previousDirection = currentDirection;
     updateCurrentDirection();
   }
 
+  /**
+   * Returns the {@link Direction3} from the coordinate at {@code index} in the {@link #curve} to
+   * the next one. {@link SpaceFillingCurve}s know their directions, other curves are computed.
+   */
+  private Direction3 getStep(int index) {
+    if (curve instanceof SpaceFillingCurve) {
+      return ((SpaceFillingCurve) curve).getDirection(index);
+    }
+    return Direction3.valueOf(curve.get(index + 1).minus(curve.get(index)));
+  }
+
   private void updateCurrentDirection() {
-    if (coordinateIterator.hasNext()) {
-      coordinateIterator.next(); // Peek nextCoordinate
-      Vec3I nextCoordinate = coordinateIterator.previous();
-      currentDirection = Direction3.valueOf(nextCoordinate.minus(currentCoordinate));
+    if (coordinateIndex + 1 < curve.size()) {
+      currentDirection = getStep(coordinateIndex);
     } else if (previousDirection != null) {
       currentDirection = previousDirection;
     } else {
@@ -14,10 +14,12 @@ import java.util.Collection;
 import java.util.List;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ListMultimap;
 import com.google.common.math.DoubleMath;
+import com.google.common.math.LongMath;
+import com.google.common.primitives.Ints;
 
-import de.adrodoc55.minecraft.coordinate.Axis3;
 import de.adrodoc55.minecraft.coordinate.Vec3I;
 import de.adrodoc55.minecraft.coordinate.Direction3;
 import de.adrodoc55.minecraft.coordinate.Orientation3;
@@ -31,9 +33,7 @@ public class CommandBlockPlacer {
   /**
    * Equivalent to
    * {@link #place(List, Vec3I, Vec3I, Orientation3, CommandBlockFactory)} using an
-   * optimal {@link Orientation3}. The direction in which the cuboid expands the most is used as the
-   * primary direction and the direction in which the cuboid expands the least is used as the
-   * tertiary direction of the orientation.
+   * optimal {@link Orientation3}.
    *
    * @param chain the chain containing all {@link Command}s that should be placed
    * @param min the minimal {@link Vec3I} (inclusive)
@@ -42,15 +42,102 @@ public class CommandBlockPlacer {
    * @return the command blocks generated by {@code factory} using the coordinates of the placement
    * @throws NotEnoughSpaceException if not all {@link Command}s of {@code chain} could be placed in
    *         the cubiod between {@code min} and {@code max}
+   * @see #placeOptimized(List, Vec3I, Vec3I, CommandBlockFactory)
    */
   public static <C extends Command, CB> Collection<CB> place(List<? extends C> chain,
       Vec3I min, Vec3I max, CommandBlockFactory<C, CB> factory)
       throws NotEnoughSpaceException {
+    return placeOptimized(chain, min, max, factory).getCommandBlocks();
+  }
+
+  /**
+   * Places the {@link Command}s in {@code chain} between {@code min} and {@code max} along the
+   * space filling curve that needs the fewest NOPs to keep {@link Command#isConditional()
+   * conditional} {@link Command}s away from turns.
+   * <p>
+   * The preferred {@link Orientation3} uses the direction in which the cuboid expands the most as
+   * the primary direction and the direction in which the cuboid expands the least as the tertiary
+   * direction. If the chain contains conditional {@link Command}s, all other orientations are
+   * tried as well, each both with the smallest cube that can hold the chain and with the whole
+   * cuboid, whose longer rows have fewer turns. Ties are resolved in favor of the preferred
+   * orientation and the smaller cube.
+   *
+   * @param chain the chain containing all {@link Command}s that should be placed
+   * @param min the minimal {@link Vec3I} (inclusive)
+   * @param max the maximal {@link Vec3I} (exclusive)
+   * @param factory
+   * @return the command blocks generated by {@code factory} along with the utilization of the
+   *         cuboid
+   * @throws NotEnoughSpaceException if not all {@link Command}s of {@code chain} could be placed in
+   *         the cubiod between {@code min} and {@code max}
+   */
+  public static <C extends Command, CB> Placement<CB> placeOptimized(List<? extends C> chain,
+      Vec3I min, Vec3I max, CommandBlockFactory<C, CB> factory)
+      throws NotEnoughSpaceException {
+    checkNotNull(chain, "chain == null!");
+    checkNotNull(factory, "factory == null!");
     checkNotNull(min, "min == null!");
     checkNotNull(max, "max == null!");
     checkArgument(min.x < max.x, "min.x >= max.x!");
-    checkArgument(min.z < max.y, "min.y >= max.y!");
-    checkArgument(min.z < max.y, "min.z >= max.z!");
+    checkArgument(min.y < max.y, "min.y >= max.y!");
+    checkArgument(min.z < max.z, "min.z >= max.z!");
+
+    Orientation3 preferred = getPreferredOrientation(min, max);
+    List<Orientation3> orientations = new ArrayList<>(ORIENTATIONS.size());
+    orientations.add(preferred);
+    for (Orientation3 orientation : ORIENTATIONS) {
+      if (!orientation.equals(preferred)) {
+        orientations.add(orientation);
+      }
+    }
+
+    Vec3I lastInCuboid = max.minus(1, 1, 1);
+    List<CommandBlock<C>> best = null;
+    Orientation3 bestOrientation = null;
+    NotEnoughSpaceException failure = null;
+    candidates: for (Orientation3 orientation : orientations) {
+      for (boolean wholeCuboid : new boolean[] {false, true}) {
+        List<CommandBlock<C>> blocks;
+        try {
+          // -1 because the corners of getSpaceFillingCurve are inclusive
+          blocks = wholeCuboid
+              ? ChainPlacer.place(chain, getSpaceFillingCurve(min, lastInCuboid, orientation))
+              : place(chain, min, max, orientation);
+        } catch (NotEnoughSpaceException ex) {
+          failure = ex;
+          continue;
+        }
+        if (best == null || blocks.size() < best.size()) {
+          best = blocks;
+          bestOrientation = orientation;
+        }
+        if (best.size() == chain.size()) {
+          // No NOPs, this can't be improved
+          break candidates;
+        }
+      }
+    }
+    if (best == null) {
+      throw failure;
+    }
+    // The last coordinate of a curve is never used
+    long capacity = (long) (max.x - min.x) * (max.y - min.y) * (max.z - min.z) - 1;
+    return new Placement<>(transformResult(factory, best), bestOrientation, chain.size(),
+        best.size() - chain.size(), Ints.saturatedCast(capacity));
+  }
+
+  /**
+   * All {@link Orientation3}s with positive directions. Mirrored orientations have their turns at
+   * the same positions in the chain, so they can't need fewer NOPs.
+   */
+  private static final List<Orientation3> ORIENTATIONS = ImmutableList.of(Orientation3.XYZ,
+      Orientation3.XZY, Orientation3.YXZ, Orientation3.YZX, Orientation3.ZXY, Orientation3.ZYX);
+
+  /**
+   * Returns the {@link Orientation3} whose primary direction is the one in which the cuboid
+   * expands the most and whose tertiary direction is the one in which it expands the least.
+   */
+  private static Orientation3 getPreferredOrientation(Vec3I min, Vec3I max) {
     int deltaX = max.x - min.x;
     int deltaY = max.y - min.y;
     int deltaZ = max.z - min.z;
@@ -71,9 +158,7 @@ public class CommandBlockPlacer {
     // Secondary direction for shortest side
     Direction3 tertiary = m.get(sortedDeltas[0]).get(0);
 
-    Orientation3 orientation = new Orientation3(primary, secondary, tertiary);
-
-    return place(chain, min, max, orientation, factory);
+    return new Orientation3(primary, secondary, tertiary);
   }
 
   /**
@@ -116,23 +201,26 @@ public class CommandBlockPlacer {
     checkNotNull(max, "max == null!");
     checkNotNull(orientation, "orientation == null!");
     checkArgument(min.x < max.x, "min.x >= max.x!");
-    checkArgument(min.z < max.y, "min.y >= max.y!");
-    checkArgument(min.z < max.y, "min.z >= max.z!");
+    checkArgument(min.y < max.y, "min.y >= max.y!");
+    checkArgument(min.z < max.z, "min.z >= max.z!");
 
     int deltaX = max.x - min.x;
     int deltaY = max.y - min.y;
     int deltaZ = max.z - min.z;
 
-    // Initialized to minimal side length of a cube that can hold all commands
-    int sideLength = DoubleMath.roundToInt(Math.cbrt(chain.size()), CEILING);
+    // The curve needs one more coordinate than there are commands
+    int sideLength = getMinimalSideLength(chain.size() + 1, deltaX, deltaY, deltaZ);
+    if (sideLength < 0) {
+      throw new NotEnoughSpaceException();
+    }
     while (true) {
       // -1 because the corners of getSpaceFillingCurve are inclusive
-      Vec3I estimatedMax = Vec3I.min(max, min.plus(new Vec3I(sideLength - 1)));
+      Vec3I estimatedMax = Vec3I.min(max.minus(1, 1, 1), min.plus(new Vec3I(sideLength - 1)));
       List<Vec3I> curve = getSpaceFillingCurve(min, estimatedMax, orientation);
       try {
         return ChainPlacer.place(chain, curve);
       } catch (NotEnoughSpaceException ex) {
-        if (sideLength > max(deltaX, deltaY, deltaZ)) {
+        if (sideLength >= max(deltaX, deltaY, deltaZ)) {
           throw ex;
         }
         sideLength++;
@@ -140,6 +228,47 @@ public class CommandBlockPlacer {
     }
   }
 
+  /**
+   * Returns the side length of the smallest cube that, when clipped to a cuboid with the specified
+   * dimensions, contains at least {@code volume} blocks. Each dimension that is shorter than the
+   * cube's side length is filled completely, so the side length is the k-th root of the volume
+   * remaining for the k dimensions that aren't.
+   *
+   * @param volume the minimal number of blocks
+   * @param dimensions the dimensions of the cuboid
+   * @return the side length or -1 if the whole cuboid contains less than {@code volume} blocks
+   */
+  static int getMinimalSideLength(long volume, int... dimensions) {
+    int[] sorted = dimensions.clone();
+    Arrays.sort(sorted);
+    long remaining = Math.max(volume, 1);
+    for (int i = 0; i < sorted.length; i++) {
+      int unclipped = sorted.length - i;
+      int sideLength = root(remaining, unclipped);
+      if (sideLength <= sorted[i]) {
+        return sideLength;
+      }
+      // The i-th dimension is filled completely
+      remaining = LongMath.divide(remaining, sorted[i], CEILING);
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the smallest integer whose {@code k}-th power is at least {@code value}.
+   */
+  private static int root(long value, int k) {
+    int root = DoubleMath.roundToInt(Math.pow(value, 1d / k), CEILING);
+    // Correct floating point errors
+    while (root > 1 && LongMath.checkedPow(root - 1, k) >= value) {
+      root--;
+    }
+    while (LongMath.checkedPow(root, k) < value) {
+      root++;
+    }
+    return root;
+  }
+
   /**
    * Returns a {@link List} of {@link Vec3I}s that completely fill the cubiod between
    * {@code corner1} and {@code corner2} as a space filling curve with the specified
@@ -152,7 +281,9 @@ public class CommandBlockPlacer {
    * opposite corner (Not neccessarily {@code corner1} or {@code corner2}).</li>
    * </ul>
    * There are no limitations for {@code corner1} and {@code corner2}, they can be positive or
-   * negative and it does not matter which one is bigger.
+   * negative and it does not matter which one is bigger.<br>
+   * The returned {@link List} is immutable and cached, so repeatedly requesting the same curve is
+   * cheap.
    *
    * @param corner1 one corner of the cuboid (inclusive)
    * @param corner2 the diagonally opposite corner of the cuboid (inclusive)
@@ -162,41 +293,6 @@ public class CommandBlockPlacer {
    */
   public static List<Vec3I> getSpaceFillingCurve(Vec3I corner1, Vec3I corner2,
       Orientation3 orientation) {
-    final Vec3I min = Vec3I.min(corner1, corner2);
-    final Vec3I max = Vec3I.max(corner1, corner2);
-
-    final Direction3 tDirection = orientation.getTertiary();
-    final Direction3 sDirection = orientation.getSecondary();
-    final Direction3 pDirection = orientation.getPrimary();
-    final Axis3 tAxis = tDirection.getAxis();
-    final Axis3 sAxis = sDirection.getAxis();
-    final Axis3 pAxis = pDirection.getAxis();
-    final int minT = min.get(tAxis);
-    final int maxT = max.get(tAxis);
-    final int minS = min.get(sAxis);
-    final int maxS = max.get(sAxis);
-    final int minP = min.get(pAxis);
-    final int maxP = max.get(pAxis);
-
-    List<Vec3I> result = new ArrayList<>();
-    boolean backwardsSecondary = false;
-    boolean backwardsPrimary = false;
-    boolean incrementT = tDirection.isPositive();
-    for (int t = incrementT ? minT : maxT; minT <= t && t <= maxT; t += incrementT ? 1 : -1) {
-      boolean incrementS = sDirection.isPositive() ^ backwardsSecondary;
-      for (int s = incrementS ? minS : maxS; minS <= s && s <= maxS; s += incrementS ? 1 : -1) {
-        boolean incrementP = pDirection.isPositive() ^ backwardsPrimary;
-        for (int p = incrementP ? minP : maxP; minP <= p && p <= maxP; p += incrementP ? 1 : -1) {
-          result.add(new Vec3I()//
-              .plus(p, pAxis)// Primary
-              .plus(s, sAxis)// Secondary
-              .plus(t, tAxis)// Tertiary
-          );
-        }
-        backwardsPrimary = !backwardsPrimary;
-      }
-      backwardsSecondary = !backwardsSecondary;
-    }
-    return result;
+    return SpaceFillingCurve.of(corner1, corner2, orientation);
   }
 }
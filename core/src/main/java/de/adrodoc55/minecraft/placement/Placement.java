@@ -0,0 +1,101 @@
+package de.adrodoc55.minecraft.placement;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.concurrent.Immutable;
+
+import de.adrodoc55.minecraft.coordinate.Orientation3;
+import de.adrodoc55.minecraft.coordinate.Vec3I;
+
+/**
+ * The result of {@link CommandBlockPlacer#placeOptimized(List, Vec3I, Vec3I, CommandBlockFactory)}:
+ * the placed command blocks along with how well they use the available space.
+ *
+ * @author Adrodoc55
+ */
+@Immutable
+public class Placement<CB> {
+  /**
+   * The command blocks generated by the {@link CommandBlockFactory}, in chain order.
+   */
+  private final Collection<CB> commandBlocks;
+  /**
+   * The {@link Orientation3} of the space filling curve the command blocks were placed along.
+   */
+  private final Orientation3 orientation;
+  /**
+   * The number of placed {@link Command}s.
+   */
+  private final int commandCount;
+  /**
+   * The number of empty command blocks inserted to push conditional {@link Command}s past turns.
+   */
+  private final int noOperationCount;
+  /**
+   * The number of command blocks that fit into the cuboid.
+   */
+  private final int capacity;
+
+  public Placement(Collection<CB> commandBlocks, Orientation3 orientation, int commandCount,
+      int noOperationCount, int capacity) {
+    this.commandBlocks = checkNotNull(commandBlocks, "commandBlocks == null!");
+    this.orientation = checkNotNull(orientation, "orientation == null!");
+    this.commandCount = commandCount;
+    this.noOperationCount = noOperationCount;
+    this.capacity = capacity;
+  }
+
+  /**
+   * @return the value of {@link #commandBlocks}
+   */
+  public Collection<CB> getCommandBlocks() {
+    return commandBlocks;
+  }
+
+  /**
+   * @return the value of {@link #orientation}
+   */
+  public Orientation3 getOrientation() {
+    return orientation;
+  }
+
+  /**
+   * @return the value of {@link #commandCount}
+   */
+  public int getCommandCount() {
+    return commandCount;
+  }
+
+  /**
+   * @return the value of {@link #noOperationCount}
+   */
+  public int getNoOperationCount() {
+    return noOperationCount;
+  }
+
+  /**
+   * @return the value of {@link #capacity}
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the share of the {@link #capacity} occupied by actual {@link Command}s rather than by
+   * NOPs or left empty.
+   *
+   * @return the utilization between 0 and 1
+   */
+  public double getUtilization() {
+    return capacity > 0 ? (double) commandCount / capacity : 0;
+  }
+
+  @Override
+  public String toString() {
+    return "Placement [orientation=" + orientation + ", commandCount=" + commandCount
+        + ", noOperationCount=" + noOperationCount + ", capacity=" + capacity + "]";
+  }
+}
@@ -0,0 +1,200 @@
+package de.adrodoc55.minecraft.placement;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.AbstractList;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import de.adrodoc55.minecraft.coordinate.Axis3;
+import de.adrodoc55.minecraft.coordinate.Direction3;
+import de.adrodoc55.minecraft.coordinate.Orientation3;
+import de.adrodoc55.minecraft.coordinate.Vec3I;
+
+/**
+ * A space filling curve through a cuboid, as returned by
+ * {@link CommandBlockPlacer#getSpaceFillingCurve(Vec3I, Vec3I, Orientation3)}. The coordinates
+ * are packed into an {@code int[]} along with the {@link Direction3} of each step, and the
+ * {@link Vec3I} objects of the {@link List} view are only created once per coordinate.
+ *
+ * <p>
+ * Curves are cached per cuboid and {@link Orientation3}, since the same few cuboids are placed
+ * into over and over again.
+ *
+ * @author Adrodoc55
+ */
+@ThreadSafe
+final class SpaceFillingCurve extends AbstractList<Vec3I> implements RandomAccess {
+  /**
+   * The approximate maximum number of bytes of all cached curves.
+   */
+  private static final long MAX_CACHED_BYTES = 64 << 20;
+  /**
+   * The approximate number of bytes per point of a curve: the three coordinates, the references
+   * in {@link #directions} and {@link #points} and the {@link Vec3I} itself. Points are created
+   * lazily, but a cached curve may end up with all of them, so they are always accounted for.
+   */
+  private static final int BYTES_PER_POINT = 3 * 4 + 2 * 4 + 24;
+
+  private static final LoadingCache<Key, SpaceFillingCurve> CACHE = CacheBuilder.newBuilder()//
+      .maximumWeight(MAX_CACHED_BYTES)//
+      .weigher((Key key, SpaceFillingCurve curve) -> (int) Math
+          .min((long) curve.size() * BYTES_PER_POINT, Integer.MAX_VALUE))//
+      .build(CacheLoader.from(key -> new SpaceFillingCurve(key.min, key.max, key.orientation)));
+
+  /**
+   * Returns the space filling curve for the cuboid between {@code corner1} and {@code corner2}
+   * with the specified {@link Orientation3}, computing it only if it isn't cached.
+   *
+   * @param corner1 one corner of the cuboid (inclusive)
+   * @param corner2 the diagonally opposite corner of the cuboid (inclusive)
+   * @param orientation the {@link Orientation3}
+   * @return the space filling curve
+   */
+  public static SpaceFillingCurve of(Vec3I corner1, Vec3I corner2, Orientation3 orientation) {
+    checkNotNull(orientation, "orientation == null!");
+    Vec3I min = Vec3I.min(corner1, corner2);
+    Vec3I max = Vec3I.max(corner1, corner2);
+    return CACHE.getUnchecked(new Key(min, max, orientation));
+  }
+
+  /**
+   * The x, y and z coordinate of each point of the curve.
+   */
+  private final int[] coordinates;
+  /**
+   * The {@link Direction3} from each point to the next one. The last element is {@code null}.
+   */
+  private final Direction3[] directions;
+  /**
+   * The lazily created {@link Vec3I}s of the {@link List} view.
+   */
+  private final Vec3I[] points;
+
+  private SpaceFillingCurve(Vec3I min, Vec3I max, Orientation3 orientation) {
+    final Direction3 tDirection = orientation.getTertiary();
+    final Direction3 sDirection = orientation.getSecondary();
+    final Direction3 pDirection = orientation.getPrimary();
+    final int tAxis = tDirection.getAxis().ordinal();
+    final int sAxis = sDirection.getAxis().ordinal();
+    final int pAxis = pDirection.getAxis().ordinal();
+    final int minT = min.get(tDirection.getAxis());
+    final int maxT = max.get(tDirection.getAxis());
+    final int minS = min.get(sDirection.getAxis());
+    final int maxS = max.get(sDirection.getAxis());
+    final int minP = min.get(pDirection.getAxis());
+    final int maxP = max.get(pDirection.getAxis());
+
+    long size = (long) (maxT - minT + 1) * (maxS - minS + 1) * (maxP - minP + 1);
+    if (size * 3 > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Cuboid is too large: " + min + ", " + max);
+    }
+    coordinates = new int[(int) size * 3];
+    directions = new Direction3[(int) size];
+    points = new Vec3I[(int) size];
+
+    int i = 0;
+    boolean backwardsSecondary = false;
+    boolean backwardsPrimary = false;
+    boolean incrementT = tDirection.isPositive();
+    for (int t = incrementT ? minT : maxT; minT <= t && t <= maxT; t += incrementT ? 1 : -1) {
+      boolean incrementS = sDirection.isPositive() ^ backwardsSecondary;
+      for (int s = incrementS ? minS : maxS; minS <= s && s <= maxS; s += incrementS ? 1 : -1) {
+        boolean incrementP = pDirection.isPositive() ^ backwardsPrimary;
+        for (int p = incrementP ? minP : maxP; minP <= p && p <= maxP; p += incrementP ? 1 : -1) {
+          coordinates[i + pAxis] = p;
+          coordinates[i + sAxis] = s;
+          coordinates[i + tAxis] = t;
+          i += 3;
+        }
+        backwardsPrimary = !backwardsPrimary;
+      }
+      backwardsSecondary = !backwardsSecondary;
+    }
+
+    for (int point = 0; point + 1 < directions.length; point++) {
+      directions[point] = getStep(point);
+    }
+  }
+
+  /**
+   * Returns the {@link Direction3} from the point at {@code index} to the next one, which differs
+   * in exactly one axis by exactly one.
+   */
+  private Direction3 getStep(int index) {
+    int i = index * 3;
+    for (Axis3 axis : Axis3.values()) {
+      int delta = coordinates[i + 3 + axis.ordinal()] - coordinates[i + axis.ordinal()];
+      if (delta != 0) {
+        return Direction3.valueOf(axis, delta < 0);
+      }
+    }
+    throw new IllegalStateException("Duplicate point at index " + index);
+  }
+
+  @Override
+  public int size() {
+    return directions.length;
+  }
+
+  @Override
+  public Vec3I get(int index) {
+    Vec3I point = points[index];
+    if (point == null) {
+      // Vec3I is immutable, so racing threads at worst create equal points
+      int i = index * 3;
+      point = new Vec3I(coordinates[i], coordinates[i + 1], coordinates[i + 2]);
+      points[index] = point;
+    }
+    return point;
+  }
+
+  /**
+   * Returns the {@link Direction3} from the point at {@code index} to the next one.
+   *
+   * @param index the index of the point
+   * @return the {@link Direction3} or {@code null} if the point is the last one
+   */
+  public @Nullable Direction3 getDirection(int index) {
+    return directions[index];
+  }
+
+  @Immutable
+  private static final class Key {
+    private final Vec3I min;
+    private final Vec3I max;
+    private final Orientation3 orientation;
+
+    Key(Vec3I min, Vec3I max, Orientation3 orientation) {
+      this.min = min;
+      this.max = max;
+      this.orientation = orientation;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(min, max, orientation);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return min.equals(other.min) && max.equals(other.max)
+          && orientation.equals(other.orientation);
+    }
+  }
+}
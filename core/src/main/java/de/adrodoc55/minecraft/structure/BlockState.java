@@ -4,10 +4,14 @@ import java.util.Map;
 
 import javax.annotation.Nullable;
 
-import com.evilco.mc.nbt.tag.TagCompound;
+import com.energyxxer.inject.level_utils.nbt.Tag;
 
 /**
  * A Minecraft {@link Block}, but without {@link Block#getCoordinate()}.
+ * <p>
+ * Implementations must be thread-safe: when a large {@link Structure} is converted to NBT,
+ * {@link #getStringId()}, {@link #getProperties()} and {@link #getNbt()} of its {@link Block}s may
+ * be called concurrently from multiple threads.
  *
  * @author Adrodoc55
  */
@@ -29,10 +33,10 @@ public interface BlockState {
 
   /**
    * The specific <a href="https://minecraft-de.gamepedia.com/NBT-Format">NBT</a> of this
-   * {@link BlockState}. The {@link TagCompound} must be named "nbt".
+   * {@link BlockState}. The {@link Tag.Compound} must be named "nbt".
    *
    * @return the specific NBT or {@code null}
    */
   @Nullable
-  TagCompound getNbt();
+  Tag.Compound getNbt();
 }
@@ -1,6 +1,6 @@
 package de.adrodoc55.minecraft.structure;
 
-import com.evilco.mc.nbt.tag.TagCompound;
+import com.energyxxer.inject.level_utils.nbt.Tag;
 
 import de.adrodoc55.minecraft.coordinate.Vec3D;
 
@@ -20,9 +20,9 @@ public interface Entity {
 
   /**
    * The specific <a href="https://minecraft-de.gamepedia.com/NBT-Format">NBT</a> of this
-   * {@link Entity}. The {@link TagCompound} must be named "nbt".
+   * {@link Entity}. The {@link Tag.Compound} must be named "nbt".
    *
    * @return the specific NBT
    */
-  TagCompound getNbt();
+  Tag.Compound getNbt();
 }
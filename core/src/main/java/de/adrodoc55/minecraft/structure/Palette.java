@@ -1,48 +1,73 @@
 package de.adrodoc55.minecraft.structure;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
 
-import com.evilco.mc.nbt.tag.ITag;
-import com.evilco.mc.nbt.tag.TagCompound;
-import com.evilco.mc.nbt.tag.TagInteger;
-import com.evilco.mc.nbt.tag.TagList;
-import com.google.common.collect.Lists;
+import com.energyxxer.inject.level_utils.nbt.Tag;
 
 /**
  * @author Adrodoc55
  */
 class Palette {
-  private List<State> states = new ArrayList<>();
+  /**
+   * The number of blocks from which on their states and NBT are created in parallel.
+   */
+  private static final int PARALLEL_THRESHOLD = 1024;
 
-  public ITag toNbt(List<Block> blocks) {
-    List<ITag> tags = Lists.transform(blocks, this::toNbt);
-    return new TagList("blocks", tags);
+  /**
+   * The {@link State}s of this palette, mapped to their index.
+   */
+  private final Map<State, Integer> states = new LinkedHashMap<>();
+
+  public Tag.List toNbt(List<Block> blocks) {
+    int size = blocks.size();
+    State[] blockStates = new State[size];
+    Tag.Compound[] nbts = new Tag.Compound[size];
+    // Encoding one block is independent of all others, BlockState requires thread-safe getters
+    IntStream indices = IntStream.range(0, size);
+    (size >= PARALLEL_THRESHOLD ? indices.parallel() : indices).forEach(i -> {
+      Block block = blocks.get(i);
+      blockStates[i] = new State(block);
+      nbts[i] = block.getNbt();
+    });
+    // State indices are assigned in block order, so the result doesn't depend on scheduling
+    Tag.List result = new Tag.List("blocks", Tag.Type.COMPOUND);
+    for (int i = 0; i < size; i++) {
+      result.add(toNbt(blocks.get(i), getStateIndex(blockStates[i]), nbts[i]));
+    }
+    return result;
   }
 
-  public TagCompound toNbt(Block block) {
-    TagCompound result = new TagCompound("");
-    result.setTag(new TagInteger("state", getStateIndex(block)));
-    result.setTag(new TagList("pos", Structure.toNbt(block.getCoordinate())));
-    TagCompound nbt = block.getNbt();
+  public Tag.Compound toNbt(Block block) {
+    return toNbt(block, getStateIndex(new State(block)), block.getNbt());
+  }
+
+  private Tag.Compound toNbt(Block block, int stateIndex, Tag.Compound nbt) {
+    Tag.Compound result = new Tag.Compound(null);
+    result.add(new Tag.Int("state", stateIndex));
+    result.add(Structure.toNbt("pos", block.getCoordinate()));
     if (nbt != null) {
-      result.setTag(nbt);
+      result.add(nbt);
     }
     return result;
   }
 
-  private int getStateIndex(Block block) {
-    State state = new State(block);
-    int index = states.indexOf(state);
-    if (index >= 0) {
+  private int getStateIndex(State state) {
+    Integer index = states.get(state);
+    if (index != null) {
       return index;
     }
-    states.add(state);
+    states.put(state, states.size());
     return states.size() - 1;
   }
 
-  public TagList toNbt() {
-    List<ITag> palette = Lists.transform(states, State::toNbt);
-    return new TagList("palette", palette);
+  public Tag.List toNbt() {
+    Tag.List palette = new Tag.List("palette", Tag.Type.COMPOUND);
+    for (State state : states.keySet()) {
+      palette.add(state.toNbt());
+    }
+    return palette;
   }
 }
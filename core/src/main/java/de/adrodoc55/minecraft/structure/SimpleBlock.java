@@ -2,7 +2,7 @@ package de.adrodoc55.minecraft.structure;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import com.evilco.mc.nbt.tag.TagCompound;
+import com.energyxxer.inject.level_utils.nbt.Tag;
 
 import de.adrodoc55.minecraft.coordinate.Vec3I;
 
@@ -22,7 +22,7 @@ public class SimpleBlock extends SimpleBlockState implements Block {
     this.coordinate = checkNotNull(coordinate, "coordinate == null!");
   }
 
-  public SimpleBlock(String stringId, TagCompound nbt, Vec3I coordinate) {
+  public SimpleBlock(String stringId, Tag.Compound nbt, Vec3I coordinate) {
     super(stringId, nbt);
     this.coordinate = checkNotNull(coordinate, "coordinate == null!");
   }
@@ -8,7 +8,7 @@ import java.util.Map;
 
 import javax.annotation.Nullable;
 
-import com.evilco.mc.nbt.tag.TagCompound;
+import com.energyxxer.inject.level_utils.nbt.Tag;
 
 /**
  * @author Adrodoc55
@@ -16,7 +16,7 @@ import com.evilco.mc.nbt.tag.TagCompound;
 public class SimpleBlockState implements BlockState {
   protected String stringId;
   protected final Map<String, String> properties;
-  protected @Nullable TagCompound nbt;
+  protected @Nullable Tag.Compound nbt;
 
   public SimpleBlockState(String stringId) {
     this(stringId, null);
@@ -27,12 +27,12 @@ public class SimpleBlockState implements BlockState {
     this.properties.putAll(state.getProperties());
   }
 
-  public SimpleBlockState(String stringId, @Nullable TagCompound nbt) {
+  public SimpleBlockState(String stringId, @Nullable Tag.Compound nbt) {
     this(stringId, Collections.emptyMap(), nbt);
   }
 
   public SimpleBlockState(String stringId, Map<? extends String, ? extends String> properties,
-      @Nullable TagCompound nbt) {
+      @Nullable Tag.Compound nbt) {
     setStringId(stringId);
     this.properties = new HashMap<>(properties);
     setNbt(nbt);
@@ -69,14 +69,14 @@ public class SimpleBlockState implements BlockState {
    * @return the value of {@link #nbt}
    */
   @Override
-  public @Nullable TagCompound getNbt() {
+  public @Nullable Tag.Compound getNbt() {
     return nbt;
   }
 
   /**
    * @param nbt the new value for {@link #nbt}
    */
-  public void setNbt(@Nullable TagCompound nbt) {
+  public void setNbt(@Nullable Tag.Compound nbt) {
     this.nbt = nbt;
   }
 
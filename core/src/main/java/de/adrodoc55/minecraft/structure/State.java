@@ -7,8 +7,7 @@ import java.util.Map.Entry;
 
 import javax.annotation.concurrent.Immutable;
 
-import com.evilco.mc.nbt.tag.TagCompound;
-import com.evilco.mc.nbt.tag.TagString;
+import com.energyxxer.inject.level_utils.nbt.Tag;
 import com.google.common.collect.ImmutableMap;
 
 /**
@@ -28,17 +27,17 @@ class State {
     this(block.getStringId(), block.getProperties());
   }
 
-  public TagCompound toNbt() {
-    TagCompound result = new TagCompound("");
-    result.setTag(new TagString("Name", name));
-    result.setTag(getPropertiesTag());
+  public Tag.Compound toNbt() {
+    Tag.Compound result = new Tag.Compound(null);
+    result.add(new Tag.String("Name", name));
+    result.add(getPropertiesTag());
     return result;
   }
 
-  private TagCompound getPropertiesTag() {
-    TagCompound properties = new TagCompound("Properties");
+  private Tag.Compound getPropertiesTag() {
+    Tag.Compound properties = new Tag.Compound("Properties");
     for (Entry<String, String> entry : this.properties.entrySet()) {
-      properties.setTag(new TagString(entry.getKey(), entry.getValue()));
+      properties.add(new Tag.String(entry.getKey(), entry.getValue()));
     }
     return properties;
   }
@@ -5,27 +5,19 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Stream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.Deflater;
 
 import javax.annotation.Nullable;
 
-import com.evilco.mc.nbt.stream.NbtOutputStream;
-import com.evilco.mc.nbt.tag.ITag;
-import com.evilco.mc.nbt.tag.TagCompound;
-import com.evilco.mc.nbt.tag.TagDouble;
-import com.evilco.mc.nbt.tag.TagInteger;
-import com.evilco.mc.nbt.tag.TagList;
-import com.evilco.mc.nbt.tag.TagString;
-import com.google.common.collect.Lists;
+import com.energyxxer.inject.level_utils.nbt.Compression;
+import com.energyxxer.inject.level_utils.nbt.Tag;
 import com.google.common.io.Files;
 
+import de.adrodoc55.common.collect.LongObjectMap;
 import de.adrodoc55.minecraft.coordinate.Vec3D;
 import de.adrodoc55.minecraft.coordinate.Vec3I;
 
@@ -38,26 +30,50 @@ import de.adrodoc55.minecraft.coordinate.Vec3I;
  * @author Adrodoc55
  */
 public class Structure {
-  static List<ITag> toNbt(Vec3D pos) {
-    return Arrays.asList(//
-        new TagDouble("", pos.x), //
-        new TagDouble("", pos.y), //
-        new TagDouble("", pos.z) //
-    );
+  static Tag.ListOfDouble toNbt(String name, Vec3D pos) {
+    return new Tag.ListOfDouble(name, pos.x, pos.y, pos.z);
   }
 
-  static List<ITag> toNbt(Vec3I pos) {
-    return Arrays.asList(//
-        new TagInteger("", pos.x), //
-        new TagInteger("", pos.y), //
-        new TagInteger("", pos.z) //
-    );
+  static Tag.ListOfInt toNbt(String name, Vec3I pos) {
+    return new Tag.ListOfInt(name, pos.x, pos.y, pos.z);
   }
 
   /**
-   * The {@link Block}s of this {@link Structure}.
+   * The maximal volume of the {@link #explicitSize} for which the {@link #grid} is used.
    */
-  private final Map<Vec3I, Block> blocks = new LinkedHashMap<>();
+  private static final int MAX_GRID_VOLUME = 1 << 18;
+
+  /**
+   * The {@link Block}s of this {@link Structure}, keyed by their {@link Vec3I#pack() packed}
+   * coordinate. Empty while the {@link #grid} is used.
+   */
+  private final LongObjectMap<Block> blocks = new LongObjectMap<>();
+  /**
+   * The {@link Block}s of this {@link Structure} indexed by {@link #indexOf(int, int, int)} or
+   * {@code null} if the {@link #blocks} map is used. The grid is used while the
+   * {@link #explicitSize} is small and all {@link Block}s lie within it.
+   */
+  private @Nullable Block[] grid;
+  /**
+   * The number of {@link Block}s in the {@link #grid}.
+   */
+  private int gridCount;
+  /**
+   * The bounding box of all {@link Block}s and {@link #entities} (inclusive), only valid if
+   * {@link #boundsValid}. Updated whenever something is added, so that {@link #calcSize()} does not
+   * have to look at every {@link Block}.
+   */
+  private int minX;
+  private int minY;
+  private int minZ;
+  private int maxX;
+  private int maxY;
+  private int maxZ;
+  /**
+   * Whether or not the bounding box is up to date. A removed {@link Block} on the border of the
+   * bounding box invalidates it.
+   */
+  private boolean boundsValid = true;
   /**
    * The {@link Entity entities} of this {@link Structure}.
    */
@@ -85,6 +101,7 @@ public class Structure {
   }
 
   public Structure(int dataVersion, String author, @Nullable BlockState background) {
+    resetBounds();
     setDataVersion(dataVersion);
     setAuthor(author);
     setBackground(background);
@@ -126,10 +143,29 @@ public class Structure {
   }
 
   /**
+   * Sets the {@link #explicitSize}. If it is small enough the {@link Block}s are moved to the
+   * {@link #grid}.
+   *
    * @param explicitSize the new value of {@link #explicitSize}
    */
-  public void setExplicitSize(Vec3I explicitSize) {
+  public void setExplicitSize(@Nullable Vec3I explicitSize) {
+    updateBounds();
+    List<Block> blocks = getBlocks();
+    this.blocks.clear();
+    grid = null;
+    gridCount = 0;
     this.explicitSize = explicitSize;
+    if (explicitSize != null && explicitSize.x >= 0 && explicitSize.y >= 0 && explicitSize.z >= 0
+        && (long) explicitSize.x * explicitSize.y * explicitSize.z <= MAX_GRID_VOLUME) {
+      // The bounds also include entities, which only makes the check more conservative
+      if (blocks.isEmpty() || (minX >= 0 && minY >= 0 && minZ >= 0 && maxX < explicitSize.x
+          && maxY < explicitSize.y && maxZ < explicitSize.z)) {
+        grid = new Block[explicitSize.x * explicitSize.y * explicitSize.z];
+      }
+    }
+    for (Block block : blocks) {
+      store(block);
+    }
   }
 
   /**
@@ -170,7 +206,7 @@ public class Structure {
    */
   public void addBlock(Block block) throws IllegalArgumentException {
     Vec3I coordinate = block.getCoordinate();
-    if (blocks.containsKey(coordinate)) {
+    if (getBlock(coordinate) != null) {
       throw new IllegalArgumentException(
           "There is already a block associated with the coordinate " + coordinate);
     }
@@ -203,7 +239,144 @@ public class Structure {
       throw new IllegalArgumentException("The block " + block
           + " does not fit within the explicitely defined size: " + explicitSize);
     }
-    blocks.put(coordinate, block);
+    if (!Vec3I.isPackable(coordinate.x, coordinate.y, coordinate.z)) {
+      throw new IllegalArgumentException("The block " + block + " is too far from the origin");
+    }
+    store(block);
+    include(coordinate.x, coordinate.y, coordinate.z);
+  }
+
+  /**
+   * @param coordinate the coordinate
+   * @return the {@link Block} at the coordinate or {@code null} if there is none
+   */
+  public @Nullable Block getBlock(Vec3I coordinate) {
+    int x = coordinate.x;
+    int y = coordinate.y;
+    int z = coordinate.z;
+    if (grid != null) {
+      return isInGrid(x, y, z) ? grid[indexOf(x, y, z)] : null;
+    }
+    return Vec3I.isPackable(x, y, z) ? blocks.get(Vec3I.pack(x, y, z)) : null;
+  }
+
+  /**
+   * Removes the {@link Block} at the specified coordinate from this {@link Structure}.
+   *
+   * @param coordinate the coordinate
+   * @return the removed {@link Block} or {@code null} if there was none
+   */
+  public @Nullable Block removeBlock(Vec3I coordinate) {
+    int x = coordinate.x;
+    int y = coordinate.y;
+    int z = coordinate.z;
+    Block removed;
+    if (grid != null) {
+      if (!isInGrid(x, y, z)) {
+        return null;
+      }
+      int index = indexOf(x, y, z);
+      removed = grid[index];
+      grid[index] = null;
+      if (removed != null) {
+        gridCount--;
+      }
+    } else {
+      removed = Vec3I.isPackable(x, y, z) ? blocks.remove(Vec3I.pack(x, y, z)) : null;
+    }
+    if (removed != null && (x == minX || y == minY || z == minZ || x == maxX || y == maxY
+        || z == maxZ)) {
+      boundsValid = false;
+    }
+    return removed;
+  }
+
+  private void store(Block block) {
+    Vec3I coordinate = block.getCoordinate();
+    int x = coordinate.x;
+    int y = coordinate.y;
+    int z = coordinate.z;
+    if (grid != null && !isInGrid(x, y, z)) {
+      // Only possible for negative coordinates, which the explicit size does not prevent
+      List<Block> blocks = getBlocks();
+      grid = null;
+      gridCount = 0;
+      for (Block b : blocks) {
+        store(b);
+      }
+    }
+    if (grid != null) {
+      int index = indexOf(x, y, z);
+      if (grid[index] == null) {
+        gridCount++;
+      }
+      grid[index] = block;
+    } else {
+      blocks.put(Vec3I.pack(x, y, z), block);
+    }
+  }
+
+  private boolean isInGrid(int x, int y, int z) {
+    return 0 <= x && x < explicitSize.x && 0 <= y && y < explicitSize.y && 0 <= z
+        && z < explicitSize.z;
+  }
+
+  private int indexOf(int x, int y, int z) {
+    return (x * explicitSize.y + y) * explicitSize.z + z;
+  }
+
+  private boolean isEmpty() {
+    return (grid != null ? gridCount == 0 : blocks.isEmpty()) && entities.isEmpty();
+  }
+
+  /**
+   * @return all {@link Block}s, in order of their coordinate if the {@link #grid} is used and in
+   *         insertion order otherwise
+   */
+  private List<Block> getBlocks() {
+    if (grid == null) {
+      return new ArrayList<>(blocks.values());
+    }
+    List<Block> result = new ArrayList<>(gridCount);
+    for (Block block : grid) {
+      if (block != null) {
+        result.add(block);
+      }
+    }
+    return result;
+  }
+
+  private void resetBounds() {
+    minX = minY = minZ = Integer.MAX_VALUE;
+    maxX = maxY = maxZ = Integer.MIN_VALUE;
+  }
+
+  private void include(int x, int y, int z) {
+    minX = Math.min(minX, x);
+    minY = Math.min(minY, y);
+    minZ = Math.min(minZ, z);
+    maxX = Math.max(maxX, x);
+    maxY = Math.max(maxY, y);
+    maxZ = Math.max(maxZ, z);
+  }
+
+  /**
+   * Recomputes the bounding box if it was invalidated by {@link #removeBlock(Vec3I)}.
+   */
+  private void updateBounds() {
+    if (boundsValid) {
+      return;
+    }
+    resetBounds();
+    for (Block block : getBlocks()) {
+      Vec3I coordinate = block.getCoordinate();
+      include(coordinate.x, coordinate.y, coordinate.z);
+    }
+    for (Entity entity : entities) {
+      Vec3I coordinate = entity.getCoordinate().floor();
+      include(coordinate.x, coordinate.y, coordinate.z);
+    }
+    boundsValid = true;
   }
 
   /**
@@ -212,7 +385,9 @@ public class Structure {
    * @param entities
    */
   public void addEntities(Collection<? extends Entity> entities) {
-    this.entities.addAll(entities);
+    for (Entity entity : entities) {
+      addEntity(entity);
+    }
   }
 
   /**
@@ -227,6 +402,8 @@ public class Structure {
           + " does not fit within the explicitely defined size: " + explicitSize);
     }
     entities.add(entity);
+    Vec3I coordinate = entity.getCoordinate().floor();
+    include(coordinate.x, coordinate.y, coordinate.z);
   }
 
   private boolean isWithinExplicitSize(Vec3I coordinate) {
@@ -253,14 +430,11 @@ public class Structure {
    * @return the required size
    */
   public Vec3I calcSize() {
-    return Stream.concat(//
-        blocks.keySet().stream(), //
-        entities.stream()//
-            .map(Entity::getCoordinate)//
-            .map(Vec3D::floor)//
-    ).reduce(Vec3I::max)//
-        .map(c -> c.plus(new Vec3I(1, 1, 1)))//
-        .orElse(new Vec3I());
+    if (isEmpty()) {
+      return new Vec3I();
+    }
+    updateBounds();
+    return new Vec3I(maxX + 1, maxY + 1, maxZ + 1);
   }
 
   /**
@@ -271,11 +445,23 @@ public class Structure {
    * @throws IOException if an I/O error has occurred
    */
   public void writeTo(File file) throws IOException {
+    writeTo(file, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * Write the <a href="https://minecraft-de.gamepedia.com/NBT-Format">NBT</a> obtained by calling
+   * {@link #toNbt()} to the specified {@link File} using the specified deflate level.
+   *
+   * @param file the {@link File} to write to
+   * @param compressionLevel the deflate level from 0 to 9 or {@link Deflater#DEFAULT_COMPRESSION}
+   * @throws IOException if an I/O error has occurred
+   */
+  public void writeTo(File file, int compressionLevel) throws IOException {
     Files.createParentDirs(file);
-    TagCompound nbt = toNbt();
-    try (NbtOutputStream out =
-        new NbtOutputStream(new GZIPOutputStream(new FileOutputStream(file)))) {
-      out.write(nbt);
+    Tag.Compound nbt = toNbt();
+    try (OutputStream out =
+        Compression.GZIP.compress(new FileOutputStream(file), compressionLevel)) {
+      nbt.serialize(out);
     }
   }
 
@@ -283,48 +469,69 @@ public class Structure {
    * Returns a <a href="https://minecraft-de.gamepedia.com/NBT-Format">NBT</a> representation of
    * this {@link Structure}.
    *
-   * @return a new {@link TagCompound}
+   * @return a new {@link Tag.Compound}
    */
-  public TagCompound toNbt() {
-    TagCompound result = new TagCompound("");
-    result.setTag(new TagInteger("DataVersion", dataVersion));
-    result.setTag(new TagString("author", author));
+  public Tag.Compound toNbt() {
+    Tag.Compound result = new Tag.Compound("");
+    result.add(new Tag.Int("DataVersion", dataVersion));
+    result.add(new Tag.String("author", author));
     Vec3I size = getSize();
-    List<Block> blocks = new ArrayList<>(this.blocks.values());
-    if (background != null) {
+    List<Block> blocks;
+    if (grid != null) {
+      // The grid is already ordered by coordinate, so blocks and background are merged in one pass
+      blocks = new ArrayList<>(background != null ? grid.length : gridCount);
+      int i = 0;
+      for (int x = 0; x < size.getX(); x++) {
+        for (int y = 0; y < size.getY(); y++) {
+          for (int z = 0; z < size.getZ(); z++, i++) {
+            if (grid[i] != null) {
+              blocks.add(grid[i]);
+            } else if (background != null) {
+              blocks.add(new SimpleBlock(background, new Vec3I(x, y, z)));
+            }
+          }
+        }
+      }
+    } else {
+      blocks = getBlocks();
+    }
+    if (grid == null && background != null) {
       for (int x = 0; x < size.getX(); x++) {
         for (int y = 0; y < size.getY(); y++) {
           for (int z = 0; z < size.getZ(); z++) {
-            Vec3I coordinate = new Vec3I(x, y, z);
-            if (!this.blocks.containsKey(coordinate)) {
-              blocks.add(new SimpleBlock(background, coordinate));
+            if (!this.blocks.containsKey(Vec3I.pack(x, y, z))) {
+              blocks.add(new SimpleBlock(background, new Vec3I(x, y, z)));
             }
           }
         }
       }
     }
-    result.setTag(new TagList("size", toNbt(size)));
+    result.add(toNbt("size", size));
     Palette palette = new Palette();
-    result.setTag(palette.toNbt(blocks));
-    result.setTag(palette.toNbt());
-    result.setTag(new TagList("entities", Lists.transform(entities, this::toNbt)));
+    result.add(palette.toNbt(blocks));
+    result.add(palette.toNbt());
+    Tag.List entities = new Tag.List("entities", Tag.Type.COMPOUND);
+    for (Entity entity : this.entities) {
+      entities.add(toNbt(entity));
+    }
+    result.add(entities);
     return result;
   }
 
-  private TagCompound toNbt(Entity entity) {
-    TagCompound result = new TagCompound("");
-    result.setTag(new TagList("pos", toNbt(entity.getCoordinate())));
-    result.setTag(new TagList("blockPos", toNbt(entity.getCoordinate().floor())));
-    TagCompound nbt = entity.getNbt();
+  private Tag.Compound toNbt(Entity entity) {
+    Tag.Compound result = new Tag.Compound(null);
+    result.add(toNbt("pos", entity.getCoordinate()));
+    result.add(toNbt("blockPos", entity.getCoordinate().floor()));
+    Tag.Compound nbt = entity.getNbt();
     if (nbt != null) {
-      result.setTag(nbt);
+      result.add(nbt);
     }
     return result;
   }
 
   @Override
   public String toString() {
-    return "Structure [blocks=" + blocks + ", entities=" + entities + ", dataVersion=" + dataVersion
-        + ", author=" + author + ", background=" + background + "]";
+    return "Structure [blocks=" + getBlocks() + ", entities=" + entities + ", dataVersion="
+        + dataVersion + ", author=" + author + ", background=" + background + "]";
   }
 }